@@ -0,0 +1,140 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ScanBenchmark times each scan engine against the same synthetic tree. The java.io.File recursion
+ * DirSize originally used is kept here as the baseline.
+ *
+ * The tree sits in the OS page cache after the first pass, so these numbers show CPU and system call
+ * overhead rather than disk speed.
+ *
+ * @author michael.d.fross
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScanBenchmark {
+	@Param({ "8" })
+	int fanOut;
+
+	@Param({ "4" })
+	int depth;
+
+	@Param({ "10" })
+	int filesPerDir;
+
+	@Param({ "4" })
+	int threads;
+
+	SyntheticTree tree;
+	BasicFileAttributes rootAttrs;
+	ForkJoinPool pool;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		tree = new SyntheticTree(fanOut, depth, filesPerDir);
+		rootAttrs = Files.readAttributes(tree.queryRoot(), BasicFileAttributes.class);
+		pool = new ForkJoinPool(threads);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		pool.shutdown();
+		tree.delete();
+	}
+
+	/**
+	 * The original java.io.File recursion with an isDirectory() and length() call per entry
+	 */
+	@Benchmark
+	public long[] fileApiBaseline() {
+		return (fileApiScan(tree.queryRoot().toFile()));
+	}
+
+	private static long[] fileApiScan(File dir) {
+		long[] totals = { 0L, 0L };
+		File[] contents = dir.listFiles();
+		for (int i = 0; i < contents.length; i++) {
+			if (contents[i].isDirectory() == true) {
+				long[] sub = fileApiScan(contents[i]);
+				totals[0] += sub[0];
+				totals[1] += sub[1];
+			} else {
+				totals[0] += contents[i].length();
+				totals[1]++;
+			}
+		}
+		return (totals);
+	}
+
+	@Benchmark
+	public long[] serialScan() {
+		return (new ScanDir().ScanDirectory(tree.queryRoot(), rootAttrs));
+	}
+
+	@Benchmark
+	public long[] forkJoinScan() {
+		return (pool.invoke(new ScanDirTask(new ScanDir(), tree.queryRoot(), rootAttrs)));
+	}
+
+	@Benchmark
+	public long[] virtualThreadScan() throws InterruptedException, ExecutionException {
+		VirtualScan virtualScan = new VirtualScan(new ScanDir(), threads * 16);
+		try {
+			return (virtualScan.submit(tree.queryRoot(), rootAttrs).get());
+		} finally {
+			virtualScan.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SortBenchmark times the SizeMap sorts, the top 25 selection and min/max queries on a result set
+ * the size of a root directory with many children.
+ *
+ * @author michael.d.fross
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SortBenchmark {
+	@Param({ "1000", "100000" })
+	int entries;
+
+	SizeMap results;
+
+	@Setup
+	public void setup() {
+		Random rnd = new Random(42);
+		results = new SizeMap();
+
+		for (int i = 0; i < entries; i++) {
+			String name = (rnd.nextBoolean() ? "Dir" : "dir") + Integer.toHexString(rnd.nextInt());
+			results.add(name, "/tmp/" + name, rnd.nextInt(Integer.MAX_VALUE), rnd.nextInt(10000));
+		}
+	}
+
+	@Benchmark
+	public int[] sortBySizeDescending() {
+		return (results.sort('s', false));
+	}
+
+	@Benchmark
+	public int[] sortByNameAscending() {
+		return (results.sort('d', false));
+	}
+
+	@Benchmark
+	public int[] top25BySize() {
+		return (results.top(25, 's', false));
+	}
+
+	@Benchmark
+	public long[] queryRange() {
+		return (results.queryRange(false, 0));
+	}
+
+}
@@ -0,0 +1,106 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * SyntheticTree builds a directory tree in a temporary directory for the scanner benchmarks. The
+ * shape is fixed by the fan out, depth and files per directory, and file sizes come from a seeded
+ * random generator so every run scans the same tree.
+ *
+ * @author michael.d.fross
+ */
+public class SyntheticTree {
+	private final Path root;
+
+	/**
+	 * Constructor: Create the tree
+	 * 
+	 * @param fanOut        Subdirectories in each directory
+	 * @param depth         Levels of subdirectories below the root
+	 * @param filesPerDir   Files in each directory
+	 * @throws IOException
+	 */
+	public SyntheticTree(int fanOut, int depth, int filesPerDir) throws IOException {
+		root = Files.createTempDirectory("dirsize-jmh");
+		build(root, fanOut, depth, filesPerDir, new Random(42));
+	}
+
+	/**
+	 * build(): Recursively create the files and subdirectories of one directory
+	 */
+	private static void build(Path dir, int fanOut, int depth, int filesPerDir, Random rnd) throws IOException {
+		for (int i = 0; i < filesPerDir; i++) {
+			Files.write(dir.resolve("file" + i + ".dat"), new byte[rnd.nextInt(4096)]);
+		}
+
+		if (depth > 0) {
+			for (int i = 0; i < fanOut; i++) {
+				Path subDir = Files.createDirectory(dir.resolve("dir" + i));
+				build(subDir, fanOut, depth - 1, filesPerDir, rnd);
+			}
+		}
+	}
+
+	/**
+	 * queryRoot(): Return the root of the tree
+	 * 
+	 * @return
+	 */
+	public Path queryRoot() {
+		return (root);
+	}
+
+	/**
+	 * delete(): Remove the tree
+	 * 
+	 * @throws IOException
+	 */
+	public void delete() throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException ex) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+}
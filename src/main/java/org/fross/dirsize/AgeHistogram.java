@@ -0,0 +1,210 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * AgeHistogram sorts the bytes and files of each report entry into fixed age buckets by the time each
+ * file was last modified (or last accessed). The age comes from the attributes the scanner already
+ * reads, so it costs no extra I/O. The buckets grow roughly logarithmically, and 90 days is a bucket
+ * boundary so data that hasn't been touched in 90 days or more (cold data) is a simple sum.
+ *
+ * While scanning, the buckets travel with the other totals of each directory (see ScanDir.AGE_TOTALS)
+ * and are added up the same way, so threads never share a counter. Once a root member is totaled its
+ * buckets are stored here in two primitive arrays, one row of buckets per SizeMap slot.
+ *
+ * @author michael.d.fross
+ */
+public class AgeHistogram {
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+	private static final int INITIAL_ROWS = 64;
+	private static final long[] BUCKET_DAYS = { 1, 7, 30, 90, 365, 3 * 365 };
+	static final String[] BUCKET_LABELS = { "<1d", "1-7d", "7-30d", "30-90d", "90d-1y", "1-3y", "3y+" };
+	static final int BUCKETS = BUCKET_LABELS.length;
+	static final int COLD_BUCKET = 4;
+	static final int COLD_DAYS = 90;
+
+	private final boolean accessTime;
+	private final long[] cutoffMillis = new long[BUCKET_DAYS.length];
+	private int rows = 0;
+	private long[] bytes = new long[INITIAL_ROWS * BUCKETS];
+	private long[] files = new long[INITIAL_ROWS * BUCKETS];
+
+	/**
+	 * Constructor: Set which time the age is taken from and the time ages are measured from
+	 * 
+	 * @param accessTime
+	 * @param nowMillis
+	 */
+	public AgeHistogram(boolean accessTime, long nowMillis) {
+		this.accessTime = accessTime;
+		for (int i = 0; i < BUCKET_DAYS.length; i++) {
+			cutoffMillis[i] = nowMillis - BUCKET_DAYS[i] * MILLIS_PER_DAY;
+		}
+	}
+
+	/**
+	 * bucketOf(): Return the age bucket of a file from its attributes. A time in the future counts as
+	 * new
+	 * 
+	 * @param attrs
+	 * @return
+	 */
+	public int bucketOf(BasicFileAttributes attrs) {
+		long millis = (accessTime == true) ? attrs.lastAccessTime().toMillis() : attrs.lastModifiedTime().toMillis();
+		for (int i = 0; i < cutoffMillis.length; i++) {
+			if (millis >= cutoffMillis[i]) {
+				return (i);
+			}
+		}
+		return (BUCKETS - 1);
+	}
+
+	/**
+	 * queryAccessTime(): Returns true if ages are taken from the last access time instead of the last
+	 * modified time
+	 * 
+	 * @return
+	 */
+	public boolean queryAccessTime() {
+		return (accessTime);
+	}
+
+	/**
+	 * add(): Add a scan's totals to a row. The bytes of each bucket start at Element [offset] followed by
+	 * the files of each bucket
+	 * 
+	 * @param row
+	 * @param totals
+	 * @param offset
+	 */
+	public void add(int row, long[] totals, int offset) {
+		grow(row);
+		for (int b = 0; b < BUCKETS; b++) {
+			bytes[row * BUCKETS + b] += totals[offset + b];
+			files[row * BUCKETS + b] += totals[offset + BUCKETS + b];
+		}
+	}
+
+	/**
+	 * addFile(): Add a single file to a row
+	 * 
+	 * @param row
+	 * @param bucket
+	 * @param size
+	 */
+	public void addFile(int row, int bucket, long size) {
+		grow(row);
+		bytes[row * BUCKETS + bucket] += size;
+		files[row * BUCKETS + bucket]++;
+	}
+
+	/**
+	 * grow(): Make room for the row provided
+	 * 
+	 * @param row
+	 */
+	private void grow(int row) {
+		if (row >= rows) {
+			rows = row + 1;
+		}
+		if (rows * BUCKETS > bytes.length) {
+			int newLength = Math.max(bytes.length * 2, rows * BUCKETS);
+			bytes = Arrays.copyOf(bytes, newLength);
+			files = Arrays.copyOf(files, newLength);
+		}
+	}
+
+	/**
+	 * queryBytes(): Return the bytes of a row in a bucket. A row with nothing added is empty
+	 * 
+	 * @param row
+	 * @param bucket
+	 * @return
+	 */
+	public long queryBytes(int row, int bucket) {
+		return ((row < rows) ? bytes[row * BUCKETS + bucket] : 0L);
+	}
+
+	/**
+	 * queryBytes(): Return the bytes of each bucket of a row
+	 * 
+	 * @param row
+	 * @return
+	 */
+	public long[] queryBytes(int row) {
+		long[] rowBytes = new long[BUCKETS];
+		for (int b = 0; b < BUCKETS; b++) {
+			rowBytes[b] = queryBytes(row, b);
+		}
+		return (rowBytes);
+	}
+
+	/**
+	 * queryTotalBytes(): Return the bytes of each bucket added up over every row
+	 * 
+	 * @return
+	 */
+	public long[] queryTotalBytes() {
+		long[] totalBytes = new long[BUCKETS];
+		for (int i = 0; i < rows * BUCKETS; i++) {
+			totalBytes[i % BUCKETS] += bytes[i];
+		}
+		return (totalBytes);
+	}
+
+	/**
+	 * queryTotalFiles(): Return the files of each bucket added up over every row
+	 * 
+	 * @return
+	 */
+	public long[] queryTotalFiles() {
+		long[] totalFiles = new long[BUCKETS];
+		for (int i = 0; i < rows * BUCKETS; i++) {
+			totalFiles[i % BUCKETS] += files[i];
+		}
+		return (totalFiles);
+	}
+
+	/**
+	 * coldSum(): Return the sum of the buckets that haven't been touched in COLD_DAYS or more. It works
+	 * on the bytes or the files of any set of buckets, such as a row, the others line or the totals
+	 * 
+	 * @param bucketValues
+	 * @return
+	 */
+	static long coldSum(long[] bucketValues) {
+		long cold = 0;
+		for (int b = COLD_BUCKET; b < BUCKETS; b++) {
+			cold += bucketValues[b];
+		}
+		return (cold);
+	}
+
+}
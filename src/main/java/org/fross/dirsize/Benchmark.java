@@ -27,12 +27,14 @@
 package org.fross.dirsize;
 
 import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
 
 import org.fross.library.Output;
 
 /**
- * Benchmark simply starts a timer when it is created
+ * Benchmark simply starts a timer when it is created. The elapsed time comes from System.nanoTime()
+ * which, unlike the wall clock, never jumps or wraps at midnight. The wall clock times are only kept
+ * for display.
  *
  * @author michael.d.fross
  */
@@ -40,6 +42,7 @@ public class Benchmark {
 
 	LocalTime startTime;
 	LocalTime endTime;
+	long startNanos;
 	long delta;
 
 	/**
@@ -47,6 +50,7 @@ public class Benchmark {
 	 */
 	public Benchmark() {
 		startTime = LocalTime.now();
+		startNanos = System.nanoTime();
 		Output.debugPrintln("Benchmark startTime = " + startTime.toString());
 	}
 
@@ -58,7 +62,7 @@ public class Benchmark {
 	public long Stop() {
 		endTime = LocalTime.now();
 
-		delta = ChronoUnit.MILLIS.between(startTime, endTime);
+		delta = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
 
 		Output.debugPrintln("Benchmark endTime   = " + endTime.toString());
 		Output.debugPrintln("Milliseconds delta = " + delta);
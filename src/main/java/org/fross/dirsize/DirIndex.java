@@ -0,0 +1,397 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * DirIndex keeps the totals for every directory scanned, at every depth. Each directory is a slot in
+ * a set of parallel primitive arrays and points to its parent by slot number, so millions of
+ * directories don't need millions of map entries or boxed Longs.
+ *
+ * While scanning, each slot holds only the totals of the files directly inside that directory.
+ * rollup() then adds each directory into its parent. A directory is always added after its parent,
+ * so walking the slots backwards visits every child before its parent.
+ *
+ * Each slot also links to its first child and its next sibling, so the directories inside a slot are
+ * found without looking at any other slot. Whether a directory was reached through a symbolic link is
+ * kept as it's scanned.
+ *
+ * Slot 0 is the root directory.
+ *
+ * @author michael.d.fross
+ */
+public class DirIndex {
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private int count = 0;
+	private int[] parent = new int[INITIAL_CAPACITY];
+	private String[] name = new String[INITIAL_CAPACITY];
+	private long[] size = new long[INITIAL_CAPACITY];
+	private long[] files = new long[INITIAL_CAPACITY];
+	private long[] modified = new long[INITIAL_CAPACITY];
+	private int[] firstChild = new int[INITIAL_CAPACITY];
+	private int[] lastChild = new int[INITIAL_CAPACITY];
+	private int[] nextSibling = new int[INITIAL_CAPACITY];
+	private boolean[] link = new boolean[INITIAL_CAPACITY];
+	private boolean rolledUp = false;
+
+	/**
+	 * Constructor: Create the index with the root directory in slot 0
+	 * 
+	 * @param rootDir
+	 */
+	public DirIndex(String rootDir) {
+		add(-1, rootDir, false);
+	}
+
+	/**
+	 * add(): Add a directory under the provided parent slot and return its slot number. It's added to
+	 * the end of its parent's children
+	 * 
+	 * @param parentSlot
+	 * @param dirName
+	 * @param isLink
+	 * @return
+	 */
+	public synchronized int add(int parentSlot, String dirName, boolean isLink) {
+		if (count == parent.length) {
+			int newCapacity = parent.length * 2;
+			parent = Arrays.copyOf(parent, newCapacity);
+			name = Arrays.copyOf(name, newCapacity);
+			size = Arrays.copyOf(size, newCapacity);
+			files = Arrays.copyOf(files, newCapacity);
+			modified = Arrays.copyOf(modified, newCapacity);
+			firstChild = Arrays.copyOf(firstChild, newCapacity);
+			lastChild = Arrays.copyOf(lastChild, newCapacity);
+			nextSibling = Arrays.copyOf(nextSibling, newCapacity);
+			link = Arrays.copyOf(link, newCapacity);
+		}
+
+		parent[count] = parentSlot;
+		name[count] = dirName;
+		link[count] = isLink;
+		firstChild[count] = -1;
+		lastChild[count] = -1;
+		nextSibling[count] = -1;
+
+		if (parentSlot >= 0) {
+			if (firstChild[parentSlot] < 0) {
+				firstChild[parentSlot] = count;
+			} else {
+				nextSibling[lastChild[parentSlot]] = count;
+			}
+			lastChild[parentSlot] = count;
+		}
+		return (count++);
+	}
+
+	/**
+	 * setLocal(): Set the totals of the files directly inside the directory in the slot provided along
+	 * with the directory's modification time
+	 * 
+	 * @param slot
+	 * @param localSize
+	 * @param localFiles
+	 * @param modifiedMillis
+	 */
+	public synchronized void setLocal(int slot, long localSize, long localFiles, long modifiedMillis) {
+		size[slot] = localSize;
+		files[slot] = localFiles;
+		modified[slot] = modifiedMillis;
+	}
+
+	/**
+	 * setLink(): Mark whether the directory in the slot was reached through a symbolic link
+	 * 
+	 * @param slot
+	 * @param isLink
+	 */
+	public synchronized void setLink(int slot, boolean isLink) {
+		link[slot] = isLink;
+	}
+
+	/**
+	 * rollup(): Add each directory's totals into its parent so every slot holds the subtree total
+	 */
+	public synchronized void rollup() {
+		if (rolledUp == true) {
+			return;
+		}
+
+		for (int i = count - 1; i > 0; i--) {
+			size[parent[i]] += size[i];
+			files[parent[i]] += files[i];
+		}
+		rolledUp = true;
+	}
+
+	/**
+	 * top(): Return the slots of the n directories with the largest values, largest first. The root
+	 * directory isn't included. A min-heap of n slots is kept so the whole index is never sorted
+	 * 
+	 * @param n
+	 * @param byFiles
+	 * @return
+	 */
+	public synchronized int[] top(int n, boolean byFiles) {
+		long[] values = (byFiles == true) ? files : size;
+		return (top(slot -> values[slot], count, n));
+	}
+
+	/**
+	 * top(): Return the slots of the n largest values, largest first, skipping slot 0. The values come
+	 * from a function so they can be read from anywhere, such as a mapped snapshot or the change since
+	 * one, without first copying them into an array
+	 * 
+	 * @param value
+	 * @param count
+	 * @param n
+	 * @return
+	 */
+	static int[] top(IntToLongFunction value, int count, int n) {
+		int[] heap = new int[Math.min(n, Math.max(count - 1, 0))];
+		long[] heapValue = new long[heap.length];
+		int heapSize = 0;
+
+		if (heap.length == 0) {
+			return (heap);
+		}
+
+		for (int slot = 1; slot < count; slot++) {
+			long v = value.applyAsLong(slot);
+			if (heapSize < heap.length) {
+				// Still filling the heap. Sift the new slot up
+				int i = heapSize++;
+				while (i > 0 && heapValue[(i - 1) / 2] > v) {
+					heap[i] = heap[(i - 1) / 2];
+					heapValue[i] = heapValue[(i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				heap[i] = slot;
+				heapValue[i] = v;
+			} else if (v > heapValue[0]) {
+				// Larger than the smallest kept. Replace it and sift down
+				int i = 0;
+				while (true) {
+					int smallest = -1;
+					int l = 2 * i + 1;
+					int r = l + 1;
+					if (l < heapSize && heapValue[l] < v)
+						smallest = l;
+					if (r < heapSize && heapValue[r] < v && (smallest < 0 || heapValue[r] < heapValue[l]))
+						smallest = r;
+					if (smallest < 0)
+						break;
+					heap[i] = heap[smallest];
+					heapValue[i] = heapValue[smallest];
+					i = smallest;
+				}
+				heap[i] = slot;
+				heapValue[i] = v;
+			}
+		}
+
+		// Order the results largest first by repeatedly moving the smallest kept to the end
+		for (int end = heapSize - 1; end > 0; end--) {
+			int slot = heap[end];
+			long v = heapValue[end];
+			heap[end] = heap[0];
+			heapValue[end] = heapValue[0];
+
+			int i = 0;
+			while (true) {
+				int smallest = -1;
+				int l = 2 * i + 1;
+				int r = l + 1;
+				if (l < end && heapValue[l] < v)
+					smallest = l;
+				if (r < end && heapValue[r] < v && (smallest < 0 || heapValue[r] < heapValue[l]))
+					smallest = r;
+				if (smallest < 0)
+					break;
+				heap[i] = heap[smallest];
+				heapValue[i] = heapValue[smallest];
+				i = smallest;
+			}
+			heap[i] = slot;
+			heapValue[i] = v;
+		}
+
+		return (heap);
+	}
+
+	/**
+	 * queryPath(): Return the path of a slot relative to the root directory
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public synchronized String queryPath(int slot) {
+		if (slot == 0) {
+			return (name[0]);
+		}
+
+		StringBuilder sb = new StringBuilder(name[slot]);
+		for (int p = parent[slot]; p > 0; p = parent[p]) {
+			sb.insert(0, File.separatorChar).insert(0, name[p]);
+		}
+		return (sb.toString());
+	}
+
+	/**
+	 * findPath(): Return the slot of a directory given its path relative to the root, or -1 if it wasn't
+	 * scanned. Only the children of each directory along the path are looked at
+	 * 
+	 * @param relativePath
+	 * @return
+	 */
+	public synchronized int findPath(String relativePath) {
+		int slot = 0;
+		for (String dirName : relativePath.split("[/\\\\]")) {
+			if (dirName.isEmpty() == true || dirName.equals(".") == true) {
+				continue;
+			}
+
+			slot = findChild(slot, dirName);
+			if (slot < 0) {
+				return (-1);
+			}
+		}
+		return (slot);
+	}
+
+	/**
+	 * findChild(): Return the slot of the directory with the name provided directly inside a slot, or -1
+	 * if there isn't one
+	 * 
+	 * @param slot
+	 * @param dirName
+	 * @return
+	 */
+	public synchronized int findChild(int slot, String dirName) {
+		for (int child = firstChild[slot]; child >= 0; child = nextSibling[child]) {
+			if (name[child].equals(dirName) == true) {
+				return (child);
+			}
+		}
+		return (-1);
+	}
+
+	/**
+	 * queryChildren(): Return the slots of the directories directly inside a slot in the order they were
+	 * added
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public synchronized int[] queryChildren(int slot) {
+		int found = 0;
+		for (int child = firstChild[slot]; child >= 0; child = nextSibling[child]) {
+			found++;
+		}
+
+		int[] children = new int[found];
+		found = 0;
+		for (int child = firstChild[slot]; child >= 0; child = nextSibling[child]) {
+			children[found++] = child;
+		}
+		return (children);
+	}
+
+	/**
+	 * queryParent(): Return the parent slot of a slot. The root's parent is -1
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public synchronized int queryParent(int slot) {
+		return (parent[slot]);
+	}
+
+	/**
+	 * queryName(): Return the directory name of a slot. The root holds the full root directory path
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public synchronized String queryName(int slot) {
+		return (name[slot]);
+	}
+
+	/**
+	 * queryLink(): Return true if the directory in the slot was reached through a symbolic link
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public synchronized boolean queryLink(int slot) {
+		return (link[slot]);
+	}
+
+	/**
+	 * queryModified(): Return the modification time of the directory in milliseconds
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public synchronized long queryModified(int slot) {
+		return (modified[slot]);
+	}
+
+	/**
+	 * querySize(): Return the size total of the slot
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public synchronized long querySize(int slot) {
+		return (size[slot]);
+	}
+
+	/**
+	 * queryFiles(): Return the files total of the slot
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public synchronized long queryFiles(int slot) {
+		return (files[slot]);
+	}
+
+	/**
+	 * queryCount(): Return the number of directories in the index including the root
+	 * 
+	 * @return
+	 */
+	public synchronized int queryCount() {
+		return (count);
+	}
+
+}
@@ -26,20 +26,31 @@
  ******************************************************************************/
 package org.fross.dirsize;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 
 import org.fross.library.Output;
 import org.fusesource.jansi.Ansi;
 
+/**
+ * Export streams the results to a CSV file. Each line is written through a buffered writer as soon as
+ * it's added so nothing is held in memory no matter how many directories are exported.
+ *
+ * @author michael.d.fross
+ */
 public class Export {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
 	File exportFile = null;
-	List<String> entryDirName = new ArrayList<>();
-	List<Long> entryTotalSize = new ArrayList<>();
-	List<Long> entryTotalFiles = new ArrayList<>();
+	BufferedWriter exportWriter = null;
+	boolean writeError = false;
+	long linesWritten = 0;
+	long writeNanos = 0;
+	String[] extraColumns = new String[0];
 
 	/**
 	 * Constructor: Set export file via passed FILE
@@ -65,55 +76,125 @@ public class Export {
 	}
 
 	/**
-	 * addExportLine(): Add a line to the output lists done after each directory scan
+	 * setExtraColumns(): Add columns after Files to the export. Lines without values for them leave them
+	 * empty. Must be called before open()
+	 * 
+	 * @param columns
+	 */
+	public void setExtraColumns(String[] columns) {
+		extraColumns = columns;
+	}
+
+	/**
+	 * open(): Open the export file and write the CSV header
+	 * 
+	 * @return
+	 */
+	public boolean open() {
+		long startNanos = System.nanoTime();
+		try {
+			exportWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(exportFile), StandardCharsets.UTF_8), BUFFER_SIZE);
+			exportWriter.write("\"Directory\",\"Size in Bytes\",\"Files\"");
+			for (String column : extraColumns) {
+				exportWriter.write(",\"" + column.replace("\"", "\"\"") + "\"");
+			}
+			exportWriter.write('\n');
+		} catch (IOException ex) {
+			Output.printColorln(Ansi.Color.RED, "Error opening export file: " + ex.getMessage());
+			exportWriter = null;
+			return false;
+		} finally {
+			writeNanos += System.nanoTime() - startNanos;
+		}
+
+		return true;
+	}
+
+	/**
+	 * addExportLine(): Write a line to the export file. Nothing is done if the file isn't open
 	 * 
 	 * @param directory
 	 * @param totalSize
 	 * @param totalFiles
 	 */
 	public void addExportLine(String directory, long totalSize, long totalFiles) {
-		entryDirName.add(directory);
-		entryTotalSize.add(totalSize);
-		entryTotalFiles.add(totalFiles);
+		addExportLine(directory, totalSize, totalFiles, null);
 	}
 
 	/**
-	 * writeToDisk(): Dump the contents of all directories to the export file
+	 * addExportLine(): Write a line to the export file with values for the extra columns. A null array
+	 * leaves them empty
 	 * 
+	 * @param directory
+	 * @param totalSize
+	 * @param totalFiles
+	 * @param extraValues
 	 */
-	public boolean writeToDisk() {
+	public void addExportLine(String directory, long totalSize, long totalFiles, long[] extraValues) {
+		if (exportWriter == null || writeError == true) {
+			return;
+		}
+
+		long startNanos = System.nanoTime();
 		try {
-			if (exportFile.canWrite()) {
-				FileWriter exportFW;
-				try {
-					// Define the output file
-					exportFW = new FileWriter(exportFile);
-
-					// Output the header to the CSV file
-					exportFW.append("\"" + "Directory" + "\",\"" + "Size in Bytes" + "\",\"" + "Files" + "\"\n");
-
-					// Loop through the results and export the output
-					for (int i = 0; i < entryDirName.size(); i++) {
-						exportFW.append("\"" + entryDirName.get(i) + "\",");
-						exportFW.append("\"" + entryTotalSize.get(i) + "\",");
-						exportFW.append("\"" + entryTotalFiles.get(i) + "\"");
-						exportFW.append("\n");
-					}
-					exportFW.flush();
-					exportFW.close();
-
-					Output.printColorln(Ansi.Color.CYAN, "\nExport Completed to file: " + exportFile.getAbsolutePath());
-
-				} catch (IOException ex) {
-					Output.printColorln(Ansi.Color.RED, "Error writing to export file: " + ex.getMessage());
+			exportWriter.write('"');
+			exportWriter.write(directory.replace("\"", "\"\""));
+			exportWriter.write("\",\"");
+			exportWriter.write(Long.toString(totalSize));
+			exportWriter.write("\",\"");
+			exportWriter.write(Long.toString(totalFiles));
+			exportWriter.write('"');
+			for (int i = 0; i < extraColumns.length; i++) {
+				exportWriter.write(",\"");
+				if (extraValues != null) {
+					exportWriter.write(Long.toString(extraValues[i]));
 				}
+				exportWriter.write('"');
 			}
-		} catch (Exception ex) {
+			exportWriter.write('\n');
+			linesWritten++;
+		} catch (IOException ex) {
+			Output.printColorln(Ansi.Color.RED, "Error writing to export file: " + ex.getMessage());
+			writeError = true;
+		}
+		writeNanos += System.nanoTime() - startNanos;
+	}
+
+	/**
+	 * close(): Flush what's left in the buffer and close the export file
+	 * 
+	 */
+	public boolean close() {
+		if (exportWriter == null) {
 			return false;
 		}
 
+		long startNanos = System.nanoTime();
+		try {
+			exportWriter.close();
+		} catch (IOException ex) {
+			Output.printColorln(Ansi.Color.RED, "Error writing to export file: " + ex.getMessage());
+			writeError = true;
+		}
+		writeNanos += System.nanoTime() - startNanos;
+		exportWriter = null;
+
+		if (writeError == true) {
+			return false;
+		}
+
+		Output.debugPrintln("Export lines written: " + linesWritten);
+		Output.printColorln(Ansi.Color.CYAN, "\nExport Completed to file: " + exportFile.getAbsolutePath());
 		return true;
+	}
 
+	/**
+	 * queryWriteNanos(): Returns the time spent opening, writing and closing the export file
+	 * 
+	 * @return
+	 */
+	public long queryWriteNanos() {
+		return (writeNanos);
 	}
 
 	/**
@@ -136,11 +217,10 @@ public class Export {
 	 * @return
 	 */
 	public String getName() {
-		try {
-			return exportFile.getName();
-		} catch (NullPointerException ex) {
+		if (exportFile == null) {
 			return "";
 		}
+		return exportFile.getName();
 	}
 
 }
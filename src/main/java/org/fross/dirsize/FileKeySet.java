@@ -0,0 +1,120 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+/**
+ * FileKeySet is a compact hash set of (device, inode) pairs used to count hard linked files only
+ * once. The pairs are stored in two primitive long arrays with open addressing so there is no
+ * object per entry. Only files with more than one link are ever added, which keeps it small even on
+ * very large trees.
+ *
+ * @author michael.d.fross
+ */
+public class FileKeySet {
+	private static final int INITIAL_CAPACITY = 1024;	// Must be a power of two
+	private static final float MAX_LOAD = 0.6f;
+
+	private long[] devices = new long[INITIAL_CAPACITY];
+	private long[] inodes = new long[INITIAL_CAPACITY];
+	private boolean[] used = new boolean[INITIAL_CAPACITY];
+	private int size = 0;
+
+	/**
+	 * add(): Add the device/inode pair to the set. Returns true if it was not already present
+	 * 
+	 * @param dev
+	 * @param ino
+	 * @return
+	 */
+	public synchronized boolean add(long dev, long ino) {
+		int slot = findSlot(devices, inodes, used, dev, ino);
+		if (used[slot] == true) {
+			return false;
+		}
+
+		devices[slot] = dev;
+		inodes[slot] = ino;
+		used[slot] = true;
+		size++;
+
+		if (size > used.length * MAX_LOAD) {
+			grow();
+		}
+
+		return true;
+	}
+
+	/**
+	 * size(): Return the number of pairs in the set
+	 * 
+	 * @return
+	 */
+	public synchronized int size() {
+		return (size);
+	}
+
+	/**
+	 * findSlot(): Linear probe from the pair's hash until the pair or an empty slot is found
+	 * 
+	 * @return
+	 */
+	private static int findSlot(long[] devs, long[] inos, boolean[] usedSlots, long dev, long ino) {
+		int mask = usedSlots.length - 1;
+		long h = (ino * 0x9E3779B97F4A7C15L) ^ (dev * 0xC2B2AE3D27D4EB4FL);
+		int slot = (int) (h ^ (h >>> 32)) & mask;
+
+		while (usedSlots[slot] == true && (devs[slot] != dev || inos[slot] != ino)) {
+			slot = (slot + 1) & mask;
+		}
+
+		return (slot);
+	}
+
+	/**
+	 * grow(): Double the table and re-insert the existing pairs
+	 */
+	private void grow() {
+		int newCapacity = used.length * 2;
+		long[] newDevices = new long[newCapacity];
+		long[] newInodes = new long[newCapacity];
+		boolean[] newUsed = new boolean[newCapacity];
+
+		for (int i = 0; i < used.length; i++) {
+			if (used[i] == true) {
+				int slot = findSlot(newDevices, newInodes, newUsed, devices[i], inodes[i]);
+				newDevices[slot] = devices[i];
+				newInodes[slot] = inodes[i];
+				newUsed[slot] = true;
+			}
+		}
+
+		devices = newDevices;
+		inodes = newInodes;
+		used = newUsed;
+	}
+
+}
@@ -50,7 +50,7 @@ public class Help {
 		Output.printColorln(Ansi.Color.CYAN, Format.CenterText(HEADERWIDTH, "https://github.com/frossm/dirsize"));
 
 		Output.printColorln(Ansi.Color.YELLOW, "\nCommand Line Options:");
-		Output.printColorln(Ansi.Color.CYAN, " java -jar dirsize.jar [-D] [-e] [-ss|-sf|-sd] [-r] [-x filename] [-c width] [-z] [-v] [-h|?] [Directory]");
+		Output.printColorln(Ansi.Color.CYAN, " java -jar dirsize.jar [-D] [-e] [-ss|-sf|-sd] [-r] [-x filename] [-j threads] [-V reads] [--max-rate n] [--max-reads n] [--exclude pattern] [--include pattern] [--one-file-system] [--top num] [--age[=m|a]] [-L n|o|c] [-H] [-C|-F] [-a[num]] [-t num] [--metrics file] [--watch[=secs]] [--snapshot file] [--diff file] [--read file] [-c width] [-z] [-v] [-h|?] [Directory...]");
 
 		Output.printColorln(Ansi.Color.WHITE, "   -D:       Debug Mode.  Displays extra debug output");
 		Output.printColorln(Ansi.Color.WHITE, "   -e:       Suppress Error display.  Normally scanning errors are displayed");
@@ -59,6 +59,28 @@ public class Help {
 		Output.printColorln(Ansi.Color.WHITE, "   -sd:      Sort output by directory names");
 		Output.printColorln(Ansi.Color.WHITE, "   -r:       Reverse the default sort order");
 		Output.printColorln(Ansi.Color.WHITE, "   -x file:  Export the results as a CSV to the file provided");
+		Output.printColorln(Ansi.Color.WHITE, "   -j num:   Number of threads used to scan.  More than 1 enables parallel scanning");
+		Output.printColorln(Ansi.Color.WHITE, "   -V num:   Scan each directory in a virtual thread, reading at most num at once");
+		Output.printColorln(Ansi.Color.WHITE, "   --max-rate n:    Read at most n directories per second to go easy on shared storage");
+		Output.printColorln(Ansi.Color.WHITE, "   --max-reads n:   Read at most n directories at the same time");
+		Output.printColorln(Ansi.Color.WHITE, "   --exclude pat:   Skip files and directories matching a glob (or regex:pattern)");
+		Output.printColorln(Ansi.Color.WHITE, "   --include pat:   Only count files matching a glob (or regex:pattern)");
+		Output.printColorln(Ansi.Color.WHITE, "   --one-file-system: Don't scan directories mounted from another file system");
+		Output.printColorln(Ansi.Color.WHITE, "   --top num:       Only show the first num directories.  The rest are totaled on one line");
+		Output.printColorln(Ansi.Color.WHITE, "   --age[=m|a]:     Show how old the data is by modified [Default] or accessed time");
+		Output.printColorln(Ansi.Color.WHITE, "   -Ln:      Never follow symbolic links to directories");
+		Output.printColorln(Ansi.Color.WHITE, "   -Lo:      Follow each symbolic link target only once");
+		Output.printColorln(Ansi.Color.WHITE, "   -Lc:      Follow symbolic links unless they loop back to a parent [Default]");
+		Output.printColorln(Ansi.Color.WHITE, "   -H:       Count files with multiple hard links only once");
+		Output.printColorln(Ansi.Color.WHITE, "   -C:       Reuse totals of unchanged directories from the last scan's cache");
+		Output.printColorln(Ansi.Color.WHITE, "   -F:       Force a full rescan and save a fresh cache");
+		Output.printColorln(Ansi.Color.WHITE, "   -a[num]:  Show the largest num directories at any depth [Default 25].  -x exports them all");
+		Output.printColorln(Ansi.Color.WHITE, "   -t num:   Show the largest num individual files found");
+		Output.printColorln(Ansi.Color.WHITE, "   --metrics file:  Write phase timings and file system call counts as JSON");
+		Output.printColorln(Ansi.Color.WHITE, "   --watch[=secs]:  Keep the report up to date as files change [Default 5 seconds]");
+		Output.printColorln(Ansi.Color.WHITE, "   --snapshot file: Save the totals of every directory to a snapshot file");
+		Output.printColorln(Ansi.Color.WHITE, "   --diff file:     Show what changed since the snapshot file was saved");
+		Output.printColorln(Ansi.Color.WHITE, "   --read file:     Display the report saved in a snapshot file without scanning");
 		Output.printColorln(Ansi.Color.WHITE, "   -c width: Width of output in columns");
 		Output.printColorln(Ansi.Color.WHITE, "   -z        Disable colorized output");
 		Output.printColorln(Ansi.Color.WHITE, "   -v:       Display the program version as well as the latest release from GitHub");
@@ -70,7 +92,9 @@ public class Help {
 		Output.printColorln(Ansi.Color.WHITE, " java -jar dirsize.jar -sd C:\\Apps");
 		Output.printColorln(Ansi.Color.CYAN, "    Display a directory name sorted report from the C:\\Apps directory\n");
 		Output.printColorln(Ansi.Color.WHITE, " java -jar dirsize.jar -c 100 -sf /home/jimbob");
-		Output.printColorln(Ansi.Color.CYAN, "    Display a file number sorted report from the jimbob's home dir using 100 columns");
+		Output.printColorln(Ansi.Color.CYAN, "    Display a file number sorted report from the jimbob's home dir using 100 columns\n");
+		Output.printColorln(Ansi.Color.WHITE, " java -jar dirsize.jar /srv /srv/data /srv/data/x");
+		Output.printColorln(Ansi.Color.CYAN, "    Display a report for each directory from a single scan of /srv");
 
 		Output.printColorln(Ansi.Color.YELLOW, "\nSNAP permissions:");
 		Output.printColorln(Ansi.Color.WHITE, " When installed via a snap, permissions must be given to read the filesystem");
@@ -29,21 +29,34 @@ package org.fross.dirsize;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.DecimalFormat;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 import org.fross.library.Debug;
 import org.fross.library.Format;
 import org.fross.library.GitHub;
 import org.fross.library.Output;
-import org.fross.library.SpinnerBouncyBall;
 import org.fusesource.jansi.Ansi;
 
 import gnu.getopt.Getopt;
+import gnu.getopt.LongOpt;
 
 /**
  * Main Class for DirSize
@@ -54,19 +67,34 @@ import gnu.getopt.Getopt;
 public class Main {
 	// Class Constants
 	private static final String PROPERTIES_FILE = "app.properties";
-	private static final int DISPLAY_PERCENT_NAME = 30;
-	private static final int DISPLAY_PERCENT_DIRSIZE = 15;
-	private static final int DISPLAY_PERCENT_NUMFILES = 15;
-	private static final int DISPLAY_PERCENT_VISUALMAP = 40;
-	private static final String ROOT_DIR_NAME = "[RootDir]";
+	static final int DISPLAY_PERCENT_NAME = 30;
+	static final int DISPLAY_PERCENT_DIRSIZE = 15;
+	static final int DISPLAY_PERCENT_NUMFILES = 15;
+	static final int DISPLAY_PERCENT_VISUALMAP = 40;
+	static final String ROOT_DIR_NAME = "[RootDir]";
+	static final String OTHERS_NAME = "[Others]";
 	private static final int MIN_TERMINAL_WIDTH = 60;
-	private static final String MAP_FILLED_CHAR = "o";
-	private static final String MAP_EMPTY_CHAR = "-";
+	private static final int DEFAULT_ALL_DEPTH_TOP = 25;
+	private static final int DEFAULT_WATCH_INTERVAL = 5;
+
+	// Long option values. They're outside the ASCII range so they can't clash with the short options
+	private static final int OPT_METRICS = 1000;
+	private static final int OPT_WATCH = 1001;
+	private static final int OPT_SNAPSHOT = 1002;
+	private static final int OPT_DIFF = 1003;
+	private static final int OPT_READ = 1004;
+	private static final int OPT_MAX_RATE = 1005;
+	private static final int OPT_MAX_READS = 1006;
+	private static final int OPT_EXCLUDE = 1007;
+	private static final int OPT_INCLUDE = 1008;
+	private static final int OPT_ONE_FILE_SYSTEM = 1009;
+	private static final int OPT_TOP = 1010;
+	private static final int OPT_AGE = 1011;
 
 	// Class Variables
 	protected static String VERSION;
 	protected static String COPYRIGHT;
-	protected static HashMap<String, String> errorList = new HashMap<String, String>();
+	protected static ScanErrors scanErrors = new ScanErrors();
 
 	/**
 	 * Main(): Main program execution entry point
@@ -76,23 +104,39 @@ public class Main {
 	public static void main(String[] args) {
 		int optionEntry;
 		String rootDir = "";
-		File[] rootMembers = {};
+		Path[] rootMembers = {};
+		BasicFileAttributes[] rootAttributes = {};
+		BitSet rootLinks = new BitSet();
 		char sortBy = 's';	// Default is sortBy size. 'f' and 'd' are also allowed
 		boolean errorDisplayFlag = true;
 		boolean reverseSort = false;
 		boolean exportFlag = false;
+		char linkPolicy = ScanDir.LINKS_CYCLE;
+		boolean hardLinksOnce = false;
+		boolean cacheFlag = false;
+		boolean cacheRefreshFlag = false;
 		int terminalWidth = 90;
+		int scanThreads = 1;
+		int virtualReads = 0;
+		int allDepthTop = 0;
+		int topFilesCount = 0;
+		int topRows = 0;
+		String metricsFile = null;
+		int watchInterval = 0;
+		String snapshotFile = null;
+		String diffFile = null;
+		String readFile = null;
+		int maxRate = 0;
+		int maxReads = 0;
+		List<String> excludePatterns = new ArrayList<String>();
+		List<String> includePatterns = new ArrayList<String>();
+		boolean oneFileSystem = false;
+		boolean ageFlag = false;
+		boolean ageAccessTime = false;
 		Export exportFile = new Export();
 
-		// Define the HashMaps for the scanning results. The directory name will be the key.
-		HashMap<String, Long> mapSize = new HashMap<String, Long>();
-		HashMap<String, Long> mapFiles = new HashMap<String, Long>();
-		HashMap<String, String> mapFullPath = new HashMap<String, String>();
-
-		// Variables to hold the overall grand total directories, sizes, and file counts
-		long grandTotalSubdirs = 1L; // It's not zero as it starts with [RootDir]
-		long grandTotalSize = 0L;
-		long grandTotalFiles = 0L;
+		// Define the SizeMap for the scanning results. Each root directory and [RootDir] gets a slot
+		SizeMap results = new SizeMap();
 
 		// Set the default terminalWidth by OS. jAnsi used to work in windows with:
 		// org.fusesource.jansi.internal.WindowsSupport.getWindowsTerminalWidth()
@@ -124,7 +168,14 @@ public class Main {
 		}
 
 		// Process Command Line Options and set flags where needed
-		Getopt optG = new Getopt("DirSize", args, "Dvx:s:rec:z?h");
+		LongOpt[] longOpts = { new LongOpt("metrics", LongOpt.REQUIRED_ARGUMENT, null, OPT_METRICS),
+				new LongOpt("watch", LongOpt.OPTIONAL_ARGUMENT, null, OPT_WATCH), new LongOpt("snapshot", LongOpt.REQUIRED_ARGUMENT, null, OPT_SNAPSHOT),
+				new LongOpt("diff", LongOpt.REQUIRED_ARGUMENT, null, OPT_DIFF), new LongOpt("read", LongOpt.REQUIRED_ARGUMENT, null, OPT_READ),
+				new LongOpt("max-rate", LongOpt.REQUIRED_ARGUMENT, null, OPT_MAX_RATE), new LongOpt("max-reads", LongOpt.REQUIRED_ARGUMENT, null, OPT_MAX_READS),
+				new LongOpt("exclude", LongOpt.REQUIRED_ARGUMENT, null, OPT_EXCLUDE), new LongOpt("include", LongOpt.REQUIRED_ARGUMENT, null, OPT_INCLUDE),
+				new LongOpt("one-file-system", LongOpt.NO_ARGUMENT, null, OPT_ONE_FILE_SYSTEM), new LongOpt("top", LongOpt.REQUIRED_ARGUMENT, null, OPT_TOP),
+				new LongOpt("age", LongOpt.OPTIONAL_ARGUMENT, null, OPT_AGE) };
+		Getopt optG = new Getopt("DirSize", args, "Dvx:s:rec:j:V:L:HCFa::t:z?h", longOpts);
 		while ((optionEntry = optG.getopt()) != -1) {
 			switch (optionEntry) {
 			// Debug Mode
@@ -206,6 +257,186 @@ public class Main {
 				}
 				break;
 
+			// Number of threads to use when scanning. More than one enables the parallel scanner
+			case 'j':
+				try {
+					scanThreads = Integer.parseInt(optG.getOptarg());
+					if (scanThreads < 1) {
+						throw new NumberFormatException();
+					}
+					Output.debugPrintln("Scanning threads set to: " + scanThreads);
+				} catch (Exception Ex) {
+					Output.fatalError("Invalid Option for -j (threads) switch: '" + optG.getOptarg() + "'", 1);
+				}
+				break;
+
+			// Scan with a virtual thread per directory, limiting the number of directories read at once
+			case 'V':
+				try {
+					virtualReads = Integer.parseInt(optG.getOptarg());
+					if (virtualReads < 1) {
+						throw new NumberFormatException();
+					}
+					Output.debugPrintln("Virtual thread concurrent reads set to: " + virtualReads);
+				} catch (Exception Ex) {
+					Output.fatalError("Invalid Option for -V (virtual threads) switch: '" + optG.getOptarg() + "'", 1);
+				}
+				break;
+
+			// How symbolic links to directories are followed
+			case 'L':
+				char linkOption = optG.getOptarg().toLowerCase().charAt(0);
+				if (linkOption == ScanDir.LINKS_NEVER || linkOption == ScanDir.LINKS_ONCE || linkOption == ScanDir.LINKS_CYCLE) {
+					linkPolicy = linkOption;
+				} else {
+					Output.fatalError("Link option '" + linkOption + "' not recognized.  See help", 1);
+				}
+				break;
+
+			// Count hard linked files only once
+			case 'H':
+				hardLinksOnce = true;
+				break;
+
+			// Reuse totals of unchanged directories from the scan cache
+			case 'C':
+				cacheFlag = true;
+				break;
+
+			// Force a full rescan, but still save a fresh scan cache
+			case 'F':
+				cacheFlag = true;
+				cacheRefreshFlag = true;
+				break;
+
+			// Keep the totals of every directory at every depth and show the largest
+			case 'a':
+				try {
+					allDepthTop = DEFAULT_ALL_DEPTH_TOP;
+					if (optG.getOptarg() != null) {
+						allDepthTop = Integer.parseInt(optG.getOptarg());
+					}
+					if (allDepthTop < 1) {
+						throw new NumberFormatException();
+					}
+				} catch (Exception Ex) {
+					Output.fatalError("Invalid Option for -a (all depths) switch: '" + optG.getOptarg() + "'", 1);
+				}
+				break;
+
+			// Keep the largest individual files found during the scan
+			case 't':
+				try {
+					topFilesCount = Integer.parseInt(optG.getOptarg());
+					if (topFilesCount < 1) {
+						throw new NumberFormatException();
+					}
+				} catch (Exception Ex) {
+					Output.fatalError("Invalid Option for -t (top files) switch: '" + optG.getOptarg() + "'", 1);
+				}
+				break;
+
+			// Write the scan metrics to a JSON file
+			case OPT_METRICS:
+				metricsFile = optG.getOptarg();
+				break;
+
+			// Keep watching the directory and redraw the report every interval (seconds)
+			case OPT_WATCH:
+				watchInterval = DEFAULT_WATCH_INTERVAL;
+				if (optG.getOptarg() != null) {
+					try {
+						watchInterval = Integer.parseInt(optG.getOptarg());
+						if (watchInterval < 1) {
+							throw new NumberFormatException();
+						}
+					} catch (Exception Ex) {
+						Output.fatalError("Invalid Option for --watch: '" + optG.getOptarg() + "'", 1);
+					}
+				}
+				break;
+
+			// Save the totals of every directory to a snapshot file
+			case OPT_SNAPSHOT:
+				snapshotFile = optG.getOptarg();
+				break;
+
+			// Show the changes since a snapshot was saved
+			case OPT_DIFF:
+				diffFile = optG.getOptarg();
+				break;
+
+			// Display the report from a snapshot without scanning
+			case OPT_READ:
+				readFile = optG.getOptarg();
+				break;
+
+			// Limit the number of directories read per second
+			case OPT_MAX_RATE:
+				try {
+					maxRate = Integer.parseInt(optG.getOptarg());
+					if (maxRate < 1) {
+						throw new NumberFormatException();
+					}
+					Output.debugPrintln("Maximum directory reads per second set to: " + maxRate);
+				} catch (Exception Ex) {
+					Output.fatalError("Invalid Option for --max-rate: '" + optG.getOptarg() + "'", 1);
+				}
+				break;
+
+			// Limit the number of directories being read at the same time
+			case OPT_MAX_READS:
+				try {
+					maxReads = Integer.parseInt(optG.getOptarg());
+					if (maxReads < 1) {
+						throw new NumberFormatException();
+					}
+					Output.debugPrintln("Maximum directory reads in flight set to: " + maxReads);
+				} catch (Exception Ex) {
+					Output.fatalError("Invalid Option for --max-reads: '" + optG.getOptarg() + "'", 1);
+				}
+				break;
+
+			// Skip files and directories matching a glob or regex. Can be given more than once
+			case OPT_EXCLUDE:
+				excludePatterns.add(optG.getOptarg());
+				break;
+
+			// Only count files matching a glob or regex. Can be given more than once
+			case OPT_INCLUDE:
+				includePatterns.add(optG.getOptarg());
+				break;
+
+			// Don't scan directories on a different file system than the root directory
+			case OPT_ONE_FILE_SYSTEM:
+				oneFileSystem = true;
+				break;
+
+			// Show how old the data is by last modified time, or last access time with --age=a
+			case OPT_AGE:
+				ageFlag = true;
+				if (optG.getOptarg() != null) {
+					if (optG.getOptarg().equals("a") == true) {
+						ageAccessTime = true;
+					} else if (optG.getOptarg().equals("m") == false) {
+						Output.fatalError("Invalid Option for --age: '" + optG.getOptarg() + "'  Use m (modified) or a (accessed)", 1);
+					}
+				}
+				break;
+
+			// Only show the first entries of the report. The rest are added up on an others line
+			case OPT_TOP:
+				try {
+					topRows = Integer.parseInt(optG.getOptarg());
+					if (topRows < 1) {
+						throw new NumberFormatException();
+					}
+					Output.debugPrintln("Report limited to the top " + topRows + " entries");
+				} catch (Exception Ex) {
+					Output.fatalError("Invalid Option for --top: '" + optG.getOptarg() + "'", 1);
+				}
+				break;
+
 			// Disable colorized output
 			case 'z':
 				Output.enableColor(false);
@@ -233,6 +464,67 @@ public class Main {
 		// Display some useful information about the environment if in Debug Mode
 		Debug.displaySysInfo();
 
+		// Report from a snapshot instead of scanning. A directory given is a path within the snapshot
+		if (readFile != null) {
+			displaySnapshot(readFile, (optG.getOptind() < args.length) ? args[optG.getOptind()] : "", sortBy, reverseSort, terminalWidth, allDepthTop,
+					topRows);
+			return;
+		}
+
+		// Check the options given against the kind of run in one place, turning off any that can't be used
+		// with it. Watch mode has its own scan and report, so the options for a regular run's scan and
+		// reports don't apply to it
+		if (watchInterval > 0) {
+			if (args.length - optG.getOptind() > 1) {
+				Output.fatalError("Only one directory can be watched with --watch", 1);
+			}
+
+			// Directories are read again as they change in watch mode, so each hard link would be counted again
+			if (hardLinksOnce == true) {
+				Output.printColorln(Ansi.Color.YELLOW, "Counting hard links once (-H) can't be used with --watch.  All hard links will be counted");
+				hardLinksOnce = false;
+			}
+
+			List<String> ignored = new ArrayList<String>();
+			if (exportFlag == true) {
+				ignored.add("Exporting (-x)");
+			}
+			if (scanThreads > 1 || virtualReads > 0) {
+				ignored.add("Parallel scanning (-j, -V)");
+			}
+			if (cacheFlag == true) {
+				ignored.add("The scan cache (-C, -F)");
+			}
+			if (allDepthTop > 0) {
+				ignored.add("The all depths report (-a)");
+			}
+			if (topFilesCount > 0) {
+				ignored.add("The largest files report (-t)");
+			}
+			if (topRows > 0) {
+				ignored.add("Limiting the report (--top)");
+			}
+			if (ageFlag == true) {
+				ignored.add("The age report (--age)");
+			}
+			if (snapshotFile != null || diffFile != null) {
+				ignored.add("Snapshots (--snapshot, --diff)");
+			}
+			if (metricsFile != null) {
+				ignored.add("Metrics (--metrics)");
+			}
+			for (String option : ignored) {
+				Output.printColorln(Ansi.Color.YELLOW, option + " can't be used with --watch and will be ignored");
+			}
+		}
+
+		// Counting hard links once, finding the largest files and file ages depend on every file being seen,
+		// so they can't be used with the scan cache
+		if (watchInterval == 0 && cacheFlag == true && (hardLinksOnce == true || topFilesCount > 0 || ageFlag == true)) {
+			Output.printColorln(Ansi.Color.YELLOW, "The scan cache can't be used with -H, -t or --age.  Performing a full scan");
+			cacheFlag = false;
+		}
+
 		// If a directory was entered on the command line, validate it and set it as root. If not use the
 		// current directory as the default
 		try {
@@ -249,31 +541,186 @@ public class Main {
 			Output.fatalError("Could not process command line arguments:\n" + Ex.getMessage(), 1);
 		}
 
-		// Create a File array of each subdirectory under the root directory that will be our target
-		try {
-			rootMembers = new File(rootDir).listFiles();
+		// With more than one directory they're all reported from a single scan. Directories below another
+		// one given come straight from its totals. Otherwise their common parent is scanned, limited to
+		// just the directories given and the path down to them
+		List<Path> reportRoots = new ArrayList<Path>();
+		for (int i = optG.getOptind(); i < args.length; i++) {
+			if (new File(args[i]).isDirectory() == false) {
+				Output.fatalError("'" + args[i] + "' is not a valid directory", 1);
+			}
+			Path reportRoot = Paths.get(args[i]).toAbsolutePath().normalize();
+			if (reportRoots.contains(reportRoot) == false) {
+				reportRoots.add(reportRoot);
+			}
+		}
+		List<Path> scanRoots = new ArrayList<Path>();
+		boolean reportRootDir = true;
+		if (reportRoots.size() > 1) {
+			Path commonRoot = reportRoots.get(0);
+			for (Path reportRoot : reportRoots) {
+				while (commonRoot != null && reportRoot.startsWith(commonRoot) == false) {
+					commonRoot = commonRoot.getParent();
+				}
+			}
+			if (commonRoot == null) {
+				Output.fatalError("The directories provided don't have a common parent to scan them from", 1);
+			}
+			if (reportRoots.contains(commonRoot) == false) {
+				scanRoots.addAll(reportRoots);
+				reportRootDir = false;
+			}
+			reportRoots.remove(commonRoot);
+			rootDir = commonRoot.toString();
+			Output.debugPrintln("Directories reported from the scan of " + rootDir + ": " + reportRoots);
+		} else {
+			reportRoots.clear();
+		}
 
-			// listFiles does return full paths. Build a HashMap with full paths
-			for (int i = 0; i < rootMembers.length; i++) {
-				mapFullPath.put(rootMembers[i].getName(), rootMembers[i].getAbsolutePath());
+		// Create the scanner shared by every directory scanned and apply the link options
+		ScanDir scanner = new ScanDir();
+		scanner.setLinkPolicy(linkPolicy);
+		scanner.setHardLinksOnce(hardLinksOnce);
+		scanner.setRootDirectory(Paths.get(rootDir));
+		if (oneFileSystem == true) {
+			try {
+				scanner.setOneFileSystem(Paths.get(rootDir));
+			} catch (IOException ex) {
+				Output.fatalError("Unable to determine the file system of '" + rootDir + "': " + ex.getMessage(), 1);
+			}
+		}
+
+		// Go easy on shared storage if a limit on directory reads was given
+		Throttle throttle = null;
+		if (maxRate > 0 || maxReads > 0) {
+			throttle = new Throttle(maxRate, maxReads);
+			scanner.setThrottle(throttle);
+		}
+
+		// Compile the exclude and include patterns once. They're checked as each directory is listed
+		PathFilter filter = null;
+		if (excludePatterns.isEmpty() == false || includePatterns.isEmpty() == false || scanRoots.isEmpty() == false) {
+			filter = new PathFilter(Paths.get(rootDir));
+			for (Path scanRoot : scanRoots) {
+				filter.addScanRoot(scanRoot);
+			}
+			for (String pattern : excludePatterns) {
+				try {
+					filter.addExclude(pattern);
+				} catch (IllegalArgumentException ex) {
+					Output.fatalError("Invalid Option for --exclude: '" + pattern + "'  " + ex.getMessage(), 1);
+				}
+			}
+			for (String pattern : includePatterns) {
+				try {
+					filter.addInclude(pattern);
+				} catch (IllegalArgumentException ex) {
+					Output.fatalError("Invalid Option for --include: '" + pattern + "'  " + ex.getMessage(), 1);
+				}
+			}
+			scanner.setFilter(filter);
+		}
+
+		// Watch mode has its own scan and report, and runs until it's stopped
+		if (watchInterval > 0) {
+			Output.debugPrintln("Watch Interval: " + watchInterval + " seconds");
+			new Watcher(scanner, Paths.get(rootDir), sortBy, reverseSort, terminalWidth).watch(watchInterval);
+			return;
+		}
+
+		// Count the file system calls and time each phase if metrics were requested
+		Metrics metrics = null;
+		if (metricsFile != null) {
+			metrics = new Metrics();
+			scanner.setMetrics(metrics);
+		}
+
+		// Keep the totals of every directory scanned if the all depths report, a snapshot or more than one
+		// directory was requested
+		DirIndex dirIndex = null;
+		if (allDepthTop > 0 || snapshotFile != null || diffFile != null || reportRoots.isEmpty() == false) {
+			dirIndex = new DirIndex(rootDir);
+			scanner.setIndex(dirIndex);
+		}
+
+		// Keep the largest files if requested
+		TopFiles topFiles = null;
+		if (topFilesCount > 0) {
+			topFiles = new TopFiles(topFilesCount);
+			scanner.setTopFiles(topFiles);
+		}
+
+		// Sort the data into age buckets in the same pass if requested
+		AgeHistogram ages = null;
+		if (ageFlag == true) {
+			ages = new AgeHistogram(ageAccessTime, System.currentTimeMillis());
+			scanner.setAges(ages);
+			String[] ageColumns = new String[AgeHistogram.BUCKETS];
+			for (int b = 0; b < AgeHistogram.BUCKETS; b++) {
+				ageColumns[b] = "Bytes " + AgeHistogram.BUCKET_LABELS[b];
+			}
+			exportFile.setExtraColumns(ageColumns);
+		}
+
+		// Load the scan cache
+		ScanCache scanCache = null;
+		if (cacheFlag == true) {
+			scanCache = new ScanCache(Paths.get(rootDir), "links=" + linkPolicy + ((oneFileSystem == true) ? ";onefs" : "")
+					+ ((filter == null) ? "" : ";" + filter.querySignature()));
+			if (cacheRefreshFlag == false) {
+				scanCache.load();
+			}
+			scanner.setCache(scanCache);
+		}
+
+		// Build an array of each member under the root directory that will be our target. The attributes
+		// are read once here and reused for the rest of the run
+		long phaseStart = System.nanoTime();
+		try (DirectoryStream<Path> rootStream = Files.newDirectoryStream(Paths.get(rootDir))) {
+			List<Path> memberList = new ArrayList<Path>();
+			List<BasicFileAttributes> attributeList = new ArrayList<BasicFileAttributes>();
+
+			for (Path member : rootStream) {
+				if (scanner.excluded(member) == true) {
+					continue;
+				}
+
+				try {
+					boolean[] isLink = { false };
+					BasicFileAttributes attrs = scanner.readAttributes(member, isLink);
+					if (attrs.isDirectory() == true && scanner.onRootFileSystem(member) == false) {
+						continue;
+					}
+					rootLinks.set(memberList.size(), isLink[0]);
+					attributeList.add(attrs);
+					memberList.add(member);
+				} catch (IOException ex) {
+					scanErrors.add(member, ex);
+				}
 			}
-		} catch (NullPointerException ex) {
+
+			rootMembers = memberList.toArray(new Path[0]);
+			rootAttributes = attributeList.toArray(new BasicFileAttributes[0]);
+		} catch (IOException | DirectoryIteratorException ex) {
 			Output.printColorln(Ansi.Color.RED, "Error scanning root directory files");
 			Output.fatalError("If DirSize is running as a snap, ensure it's been given the system-backup privilege.  See help (-h)\n", 1);
 		}
+		if (metrics != null) {
+			metrics.phase("rootListing", phaseStart);
+		}
 
 		// Debug output: Show root members
 		Output.debugPrintln("Root Members to Process:");
 		Output.debugPrintln("  Directories:");
 		if (Debug.query() == true) {
 			for (int i = 0; i < rootMembers.length; i++) {
-				if (rootMembers[i].isDirectory() == true)
+				if (rootAttributes[i].isDirectory() == true)
 					Output.debugPrintln("     - " + rootMembers[i].toString());
 			}
 
 			Output.debugPrintln("  Files:");
 			for (int i = 0; i < rootMembers.length; i++) {
-				if (rootMembers[i].isFile() == true)
+				if (rootAttributes[i].isRegularFile() == true)
 					Output.debugPrintln("     - " + rootMembers[i].toString());
 			}
 		}
@@ -283,65 +730,316 @@ public class Main {
 		Output.debugPrintln("Root Directory: " + rootDir);
 		Output.debugPrintln("SortBy [s, f, d]: " + sortBy);
 		Output.debugPrintln("Surpress Error Display: " + errorDisplayFlag);
-		try {
-			Output.debugPrintln("Export Filename:  " + exportFile.getName());
-		} catch (NullPointerException ex) {
-			// Guess we're not exporting - ignore
+		Output.debugPrintln("Scanning Threads: " + scanThreads);
+		Output.debugPrintln("Virtual Thread Concurrent Reads: " + virtualReads);
+		Output.debugPrintln("Link Policy [n, o, c]: " + linkPolicy);
+		Output.debugPrintln("Count Hard Links Once: " + hardLinksOnce);
+		Output.debugPrintln("Scan Cache: " + cacheFlag + "  Full Rescan: " + cacheRefreshFlag);
+		Output.debugPrintln("All Depths Top Directories: " + allDepthTop);
+		Output.debugPrintln("Largest Files: " + topFilesCount);
+		Output.debugPrintln("Metrics File: " + metricsFile);
+		Output.debugPrintln("Maximum Reads Per Second: " + maxRate + "  Maximum Reads In Flight: " + maxReads);
+		Output.debugPrintln("One File System: " + oneFileSystem);
+		Output.debugPrintln("Exclude Patterns: " + excludePatterns + "  Include Patterns: " + includePatterns);
+		Output.debugPrintln("Snapshot File: " + snapshotFile + "  Diff File: " + diffFile);
+		Output.debugPrintln("Export Filename:  " + exportFile.getName());
+
+		// Prime the results with the root directory files slot
+		final int rootSlot = results.add(ROOT_DIR_NAME, rootDir, 0L, 0L);
+
+		Output.printColorln(Ansi.Color.WHITE, "Scanning " + rootDir + ((scanRoots.isEmpty() == true) ? "" : " for the " + scanRoots.size() + " directories given") + ": ");
+
+		// Show live progress if we have color enabled (ANSI is needed to redraw the line)
+		Progress progress = null;
+		if (Output.queryColorEnabled() == true) {
+			progress = new Progress(terminalWidth);
+			for (int i = 0; i < rootMembers.length; i++) {
+				if (rootAttributes[i].isDirectory() == true) {
+					progress.queue(1);
+				}
+			}
+			scanner.setProgress(progress);
+			progress.start();
 		}
 
-		// Prime the hash maps that will store the results of the scan
-		mapSize.put(ROOT_DIR_NAME, 0L);
-		mapFiles.put(ROOT_DIR_NAME, 0L);
-		mapFullPath.put(ROOT_DIR_NAME, rootDir);
+		// Enable the benchmark timer
+		Benchmark benchmarkTimer = new Benchmark();
+		phaseStart = System.nanoTime();
+
+		// Scan the root members. Element [0] = Total Size, Element [1] = Total Files, Element [2] = Directories
+		long[] grandTotals = scanRootMembers(scanner, rootMembers, rootAttributes, rootLinks, results, rootSlot, scanThreads, virtualReads, topFiles, ages,
+				progress);
+		if (metrics != null) {
+			metrics.phase("scan", phaseStart);
+			Output.debugPrintln("Directories listed: " + metrics.queryDirsListed() + "  Attribute reads: " + metrics.queryStatCalls());
+		}
 
-		Output.printColor(Ansi.Color.WHITE, "Scanning " + rootDir + ": ");
+		// Add the root files to the directory index and total every directory up to its parents
+		if (dirIndex != null) {
+			completeIndex(dirIndex, results, rootSlot, rootDir);
+		}
 
-		// Create the spinner if we have color enabled (ANSI is needed for cursor movement)
-		SpinnerBouncyBall spinner = new SpinnerBouncyBall();
-		if (Output.queryColorEnabled() == true) {
-			spinner.start();
+		// Save the scan cache for the next run
+		if (scanCache != null) {
+			scanCache.save();
+			Output.debugPrintln("Scan cache directories reused: " + scanCache.queryHits() + "  Rescanned: " + scanCache.queryMisses());
+		}
+
+		// Stop the progress display, leaving the final totals on screen
+		if (progress != null) {
+			progress.stop();
+		}
+
+		// Get the sorted results based on the which column the user chose (-s option)
+		// If reverse sorting is desired (-r) adjust accordingly
+		if (sortBy != 's' && sortBy != 'f' && sortBy != 'd') {
+			Output.printColorln(Ansi.Color.RED, "ERROR: Could not detemine how to sort.  Defaulting to Size. You should never see this...");
+			sortBy = 's';
+		}
+
+		// Open the export file. Each line is written as it's displayed. With the all depths report every
+		// directory is exported with it instead of the report rows
+		if (exportFlag == true) {
+			exportFlag = exportFile.open();
+		}
+		Export reportExport = (allDepthTop == 0) ? exportFile : null;
+
+		int[] sortedSlots = null;
+		if (reportRootDir == true) {
+			sortedSlots = displayRootReport(results, rootSlot, grandTotals, sortBy, reverseSort, terminalWidth, topRows, ages, reportExport, metrics);
 		} else {
-			Output.println("");
+			// The common parent was only scanned to reach the directories given, so only they are reported
+			phaseStart = System.nanoTime();
+			for (Path reportRoot : reportRoots) {
+				displayIndexRoot(dirIndex, Paths.get(rootDir), reportRoot, sortBy, reverseSort, terminalWidth, topRows, reportExport);
+			}
+			if (metrics != null) {
+				metrics.addPhase("render", System.nanoTime() - phaseStart - exportFile.queryWriteNanos());
+			}
 		}
 
-		// Enable the benchmark timer
-		Benchmark benchmarkTimer = new Benchmark();
+		// Gather and display benchmark data
+		float timeDelta = benchmarkTimer.Stop();
+		float filesPerMS = grandTotals[1] / timeDelta;
+		Output.printColorln(Ansi.Color.CYAN, String.format("\nScanning Time: %,d ms (%,.3f files/ms)", (int) timeDelta, filesPerMS));
+
+		// Display how much of each directory's data is in each age bucket
+		if (ages != null && reportRootDir == true) {
+			displayAges(ages, results, sortedSlots, terminalWidth);
+		}
+
+		// Report the other directories requested from the same scan
+		if (reportRootDir == true) {
+			for (Path reportRoot : reportRoots) {
+				displayIndexRoot(dirIndex, Paths.get(rootDir), reportRoot, sortBy, reverseSort, terminalWidth, topRows, reportExport);
+			}
+		}
+
+		// Display the changes since the snapshot provided with --diff
+		if (diffFile != null) {
+			displayDiff(dirIndex, results, diffFile, rootDir, sortBy, reverseSort, terminalWidth, (allDepthTop > 0) ? allDepthTop : DEFAULT_ALL_DEPTH_TOP);
+		}
+
+		// Display the largest directories found at any depth from the directory index
+		if (allDepthTop > 0) {
+			displayAllDepths(dirIndex, allDepthTop, sortBy, terminalWidth, exportFile);
+		}
+
+		// Display the largest files found during the scan
+		if (topFiles != null) {
+			displayTopFiles(topFiles, rootDir, terminalWidth, exportFile);
+		}
+
+		// If Error Display is enabled and we have some errors, show them
+		if (errorDisplayFlag == true && scanErrors.queryTotal() > 0) {
+			displayErrors(terminalWidth);
+		}
+
+		// Finish writing the CSV export file if user requested an export
+		if (exportFlag == true) {
+			if (exportFile.close() == false) {
+				Output.printColorln(Ansi.Color.RED, "Error exporting to file: " + exportFile.getName());
+			}
+		}
+
+		// Save the snapshot last. If it replaces the one just compared, it's moved into place so the old one
+		// is never changed while mapped
+		if (snapshotFile != null) {
+			phaseStart = System.nanoTime();
+			try {
+				Snapshot.write(dirIndex, Paths.get(snapshotFile));
+				if (metrics != null) {
+					metrics.phase("snapshot", phaseStart);
+				}
+				Output.printColorln(Ansi.Color.CYAN, "\nSnapshot saved to file: " + snapshotFile);
+			} catch (IOException ex) {
+				Output.printColorln(Ansi.Color.RED, "\nError saving snapshot '" + snapshotFile + "': " + ex.getMessage());
+			}
+		}
+
+		// Write the metrics
+		if (metrics != null) {
+			String scanMode = (virtualReads > 0) ? "virtual" : ((scanThreads > 1) ? "forkjoin" : "serial");
+			writeMetrics(metrics, metricsFile, rootDir, scanMode, grandTotals, filter, throttle, scanCache, exportFile);
+		}
+
+	}
+
+	/**
+	 * scanRootMembers(): Total each root member, adding the directories to the results and the files
+	 * to [RootDir]. With a parallel or virtual thread scan every root directory is submitted up front so
+	 * they are all in flight at once, and the results are collected in root member order.
+	 * 
+	 * Returns a Long array with Element [0] = Total Size, Element [1] = Total Files and Element [2] =
+	 * Directories, which starts at one for [RootDir]
+	 * 
+	 * @param scanner
+	 * @param rootMembers
+	 * @param rootAttributes
+	 * @param rootLinks
+	 * @param results
+	 * @param rootSlot
+	 * @param scanThreads
+	 * @param virtualReads
+	 * @param topFiles
+	 * @param ages
+	 * @param progress
+	 * @return
+	 */
+	static long[] scanRootMembers(ScanDir scanner, Path[] rootMembers, BasicFileAttributes[] rootAttributes, BitSet rootLinks, SizeMap results, int rootSlot,
+			int scanThreads, int virtualReads, TopFiles topFiles, AgeHistogram ages, Progress progress) {
+		long[] grandTotals = { 0L, 0L, 1L };
+
+		// Virtual threads take precedence over the fork-join pool if both were requested
+		ForkJoinPool scanPool = null;
+		VirtualScan virtualScan = null;
+		List<Future<long[]>> rootTasks = new ArrayList<Future<long[]>>();
+		if (virtualReads > 0) {
+			virtualScan = new VirtualScan(scanner, virtualReads);
+		} else if (scanThreads > 1) {
+			scanPool = new ForkJoinPool(scanThreads);
+		}
 
-		// Main program loop. Step through each of the root members.
-		// If it's a file, add it up. If it's a directory, recursively get the totals
+		for (int i = 0; i < rootMembers.length; i++) {
+			Future<long[]> task = null;
+			if (rootAttributes[i].isDirectory() == true) {
+				if (virtualScan != null) {
+					task = virtualScan.submit(rootMembers[i], rootAttributes[i]);
+				} else if (scanPool != null) {
+					task = scanPool.submit(new ScanDirTask(scanner, rootMembers[i], rootAttributes[i]));
+				}
+			}
+			rootTasks.add(task);
+		}
+
+		// Step through each of the root members. If it's a file, add it up. If it's a directory, get the
+		// totals of everything below it
 		for (int i = 0; i < rootMembers.length; i++) {
 
 			// Process Directories
-			if (rootMembers[i].isDirectory() == true) {
-				// ScanDir returns a long array with [0]=Size totals & [1]=Files totals [2]=Errors
-				long[] subDirTotals = new ScanDir().ScanDirectory(rootMembers[i]);
+			if (rootAttributes[i].isDirectory() == true) {
+				// ScanDir returns a long array with [0]=Size totals & [1]=Files totals, then the age buckets
+				long[] subDirTotals = new long[scanner.totalsLength()];
+				if (rootTasks.get(i) != null) {
+					try {
+						subDirTotals = rootTasks.get(i).get();
+					} catch (InterruptedException | ExecutionException ex) {
+						Output.printColorln(Ansi.Color.RED, "ERROR Scanning " + rootMembers[i].toString() + "\n" + ex.getMessage());
+					}
+				} else {
+					subDirTotals = scanner.ScanDirectory(rootMembers[i], rootAttributes[i]);
+				}
 
-				// Save the results to the hash maps
-				mapSize.put(rootMembers[i].getName(), subDirTotals[0]);
-				mapFiles.put(rootMembers[i].getName(), subDirTotals[1]);
+				// Save the results to the SizeMap
+				int slot = results.add(rootMembers[i].getFileName().toString(), rootMembers[i].toString(), subDirTotals[0], subDirTotals[1]);
+				results.setLink(slot, rootLinks.get(i));
+				if (ages != null) {
+					ages.add(slot, subDirTotals, ScanDir.AGE_TOTALS);
+				}
 
 				// Update overall totals
-				grandTotalSubdirs++;
-				grandTotalSize += subDirTotals[0];
-				grandTotalFiles += subDirTotals[1];
+				grandTotals[0] += subDirTotals[0];
+				grandTotals[1] += subDirTotals[1];
+				grandTotals[2]++;
 			}
 
-			// Process Files
-			else {
-				mapFiles.put(ROOT_DIR_NAME, mapFiles.get(ROOT_DIR_NAME) + 1);
-				mapSize.put(ROOT_DIR_NAME, mapSize.get(ROOT_DIR_NAME) + rootMembers[i].length());
+			// Process Files. Additional hard links to an already counted file are skipped if requested
+			else if (scanner.countFile(rootMembers[i], rootAttributes[i]) == true) {
+				results.addTotals(rootSlot, ScanDir.fileSize(rootAttributes[i]), 1L);
+				if (topFiles != null) {
+					topFiles.offer(rootMembers[i], ScanDir.fileSize(rootAttributes[i]));
+				}
+				if (ages != null) {
+					ages.addFile(rootSlot, ages.bucketOf(rootAttributes[i]), ScanDir.fileSize(rootAttributes[i]));
+				}
+				if (progress != null) {
+					progress.counted(ScanDir.fileSize(rootAttributes[i]));
+				}
 
 				// Update overall totals
-				grandTotalFiles++;
+				grandTotals[1]++;
 			}
 		}
 
-		// Stop the spinner
-		if (Output.queryColorEnabled() == true) {
-			spinner.interrupt();
-			Output.printColorln(Ansi.Color.WHITE, "[Complete]");
+		// All scanning is complete, release the pool threads
+		if (scanPool != null) {
+			scanPool.shutdown();
+		}
+		if (virtualScan != null) {
+			virtualScan.shutdown();
+		}
+
+		return (grandTotals);
+	}
+
+	/**
+	 * completeIndex(): Add the root files to the directory index, total every directory up to its
+	 * parents and mark the root members that are links
+	 * 
+	 * @param dirIndex
+	 * @param results
+	 * @param rootSlot
+	 * @param rootDir
+	 */
+	static void completeIndex(DirIndex dirIndex, SizeMap results, int rootSlot, String rootDir) {
+		long rootModified = 0L;
+		try {
+			rootModified = Files.getLastModifiedTime(Paths.get(rootDir)).toMillis();
+		} catch (IOException ex) {
+			// Leave the root's modification time unknown
 		}
+		dirIndex.setLocal(0, results.querySize(rootSlot), results.queryFiles(rootSlot), rootModified);
+		dirIndex.rollup();
+
+		// The root members were read before the scan started, so their links are marked here
+		for (int slot = 0; slot < results.queryCount(); slot++) {
+			int child = dirIndex.findChild(0, results.queryName(slot));
+			if (results.queryLink(slot) == true && child >= 0) {
+				dirIndex.setLink(child, true);
+			}
+		}
+		Output.debugPrintln("Directories in index: " + dirIndex.queryCount());
+	}
 
+	/**
+	 * displayRootReport(): Display the members of the root directory with their size map and the grand
+	 * totals. The sort and render phases are added to the metrics if they're being kept. Returns the
+	 * slots in the order they were shown
+	 * 
+	 * @param results
+	 * @param rootSlot
+	 * @param grandTotals
+	 * @param sortBy
+	 * @param reverseSort
+	 * @param terminalWidth
+	 * @param topRows
+	 * @param ages
+	 * @param exportFile
+	 * @param metrics
+	 * @return
+	 */
+	static int[] displayRootReport(SizeMap results, int rootSlot, long[] grandTotals, char sortBy, boolean reverseSort, int terminalWidth, int topRows,
+			AgeHistogram ages, Export exportFile, Metrics metrics) {
 		// Determine number of columns based on the percentage constants
 		int displayNameCol = (int) (terminalWidth * DISPLAY_PERCENT_NAME * .01);
 		int displayFilesCol = (int) (terminalWidth * DISPLAY_PERCENT_NUMFILES * .01);
@@ -357,180 +1055,652 @@ public class Main {
 
 		// Determine the size of the VisualMap, which is a relative difference graphic between directories
 		// unitsPerSlot is the FileSize of FileNumber per asterisk
+		// The [RootDir] files are not part of the range. Element [0] = Minimum, Element [1] = Maximum
+		long[] sizeRange = results.queryRange(false, rootSlot);
+		long[] filesRange = results.queryRange(true, rootSlot);
 		long unitsPerSlot = 0;
 		if (sortBy == 'f') {
 			// FilesMap
-			unitsPerSlot = (SizeMap.queryMax(mapFiles, rootMembers) - SizeMap.queryMin(mapFiles, rootMembers)) / displayVisualMap;
+			unitsPerSlot = (filesRange[1] - filesRange[0]) / displayVisualMap;
 		} else {
 			// SizeMap
-			unitsPerSlot = (SizeMap.queryMax(mapSize, rootMembers) - SizeMap.queryMin(mapSize, rootMembers)) / displayVisualMap;
+			unitsPerSlot = (sizeRange[1] - sizeRange[0]) / displayVisualMap;
 		}
 
 		Output.debugPrintln("Slots in VisualMap: " + displayVisualMap);
-		Output.debugPrintln("Max Size found:       " + SizeMap.queryMax(mapSize, rootMembers));
-		Output.debugPrintln("Min Size found:       " + SizeMap.queryMin(mapSize, rootMembers));
-		Output.debugPrintln("Max Files found:       " + SizeMap.queryMax(mapFiles, rootMembers));
-		Output.debugPrintln("Min Files found:       " + SizeMap.queryMin(mapFiles, rootMembers));
+		Output.debugPrintln("Max Size found:       " + sizeRange[1]);
+		Output.debugPrintln("Min Size found:       " + sizeRange[0]);
+		Output.debugPrintln("Max Files found:       " + filesRange[1]);
+		Output.debugPrintln("Min Files found:       " + filesRange[0]);
 		Output.debugPrintln("Units Per slot:        " + unitsPerSlot);
 
 		// Display the output header
-		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
-		Output.printColor(Ansi.Color.WHITE, "Directory" + " ".repeat(displayNameCol - 9));
-		Output.printColor(Ansi.Color.WHITE, " ".repeat(displaySizeCol - 4) + "Size");
-		Output.printColor(Ansi.Color.WHITE, " ".repeat(displayFilesCol - 5) + "Files");
-		if (sortBy == 'f') {
-			Output.printColor(Ansi.Color.WHITE, "    Files Map [" + unitsPerSlot + " files/slot]");
-		} else {
-			Output.printColor(Ansi.Color.WHITE, "    Size Map [" + Format.humanReadableBytes(unitsPerSlot) + "/slot]");
-		}
-		Output.printColorln(Ansi.Color.CYAN, "\n" + "-".repeat(terminalWidth));
+		displayHeader(sortBy, unitsPerSlot, terminalWidth, displayNameCol, displaySizeCol, displayFilesCol);
+		long phaseStart = System.nanoTime();
 
-		// Get the sorted results based on the which column the user chose (-s option)
-		// If reverse sorting is desired (-r) adjust accordingly
-		Map<String, Long> resultMap = null;
-		switch (sortBy) {
-		case 's':
-			if (reverseSort == false)
-				resultMap = SizeMap.sortByValueDescending(mapSize);
-			else
-				resultMap = SizeMap.sortByValueAscending(mapSize);
-			break;
-
-		case 'f':
-			if (reverseSort == false)
-				resultMap = SizeMap.sortByValueDescending(mapFiles);
-			else
-				resultMap = SizeMap.sortByValueAscending(mapFiles);
-			break;
-
-		case 'd':
-			if (reverseSort == false)
-				resultMap = SizeMap.sortByKeyAscendingCI(mapFiles);
-			else
-				resultMap = SizeMap.sortByKeyDescendingCI(mapFiles);
-			break;
-
-		default:
-			Output.printColorln(Ansi.Color.RED, "ERROR: Could not detemine how to sort.  Defaulting to Size. You should never see this...");
-			// Default to size sorting
-			resultMap = SizeMap.sortByValueDescending(mapSize);
-			break;
+		// With --top only the entries shown are picked out instead of sorting all of them
+		int[] sortedSlots = (topRows > 0) ? results.top(topRows, sortBy, reverseSort) : results.sort(sortBy, reverseSort);
+		if (metrics != null) {
+			metrics.phase("sort", phaseStart);
 		}
+		phaseStart = System.nanoTime();
 
 		// Display the output
 		int colorCounter = 0;
+		Renderer renderer = new Renderer(sortBy, unitsPerSlot, displayNameCol, displaySizeCol, displayFilesCol, displayVisualMap);
 
-		for (Map.Entry<String, Long> i : resultMap.entrySet()) {
-			String key = i.getKey();
+		// Only directories are in the SizeMap. The root files are included as [RootDir]
+		for (int slot : sortedSlots) {
+			String displayName = renderer.row(results.queryName(slot), results.querySize(slot), results.queryFiles(slot), results.queryLink(slot),
+					colorCounter);
 
-			// Color swapper to alternate the colors of each output line
-			Ansi.Color bgColor, fgColor;
-			fgColor = ((colorCounter % 2 == 0) ? Ansi.Color.WHITE : Ansi.Color.DEFAULT);
-			bgColor = Ansi.Color.DEFAULT;
+			// Stream the line to the export file
+			if (exportFile != null) {
+				exportFile.addExportLine(displayName, results.querySize(slot), results.queryFiles(slot), (ages == null) ? null : ages.queryBytes(slot));
+			}
+			colorCounter++;
+		}
 
-			// Set the background to another color for symbolic links
-			// Currently works well in Linux, but not in Windows
-			if (Files.isSymbolicLink(Paths.get(mapFullPath.get(key))) == true) {
-				fgColor = Ansi.Color.WHITE;
-				bgColor = Ansi.Color.MAGENTA;
+		// Everything left out by --top is added up on one line so the report still adds up to the totals
+		if (sortedSlots.length < results.queryCount()) {
+			long[] others = results.queryOthers(sortedSlots);
+			String displayName = renderer.row(OTHERS_NAME + " " + others[2], others[0], others[1], false, colorCounter);
+			if (exportFile != null) {
+				exportFile.addExportLine(displayName, others[0], others[1], (ages == null) ? null : othersAgeBytes(ages, sortedSlots));
 			}
+		}
+		renderer.flush();
 
-			if (new File(mapFullPath.get(key)).isDirectory() == true) {
-				// Display the Directory Name
-				String displayName = key;
+		// Display the summary information
+		DecimalFormat df = new DecimalFormat("#,###");
+		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+		Output.printColor(Ansi.Color.CYAN, String.format("Directories: %-" + (displayNameCol - 13) + "s", grandTotals[2]));
+		Output.printColor(Ansi.Color.WHITE, String.format("%" + displaySizeCol + "s", Format.humanReadableBytes(grandTotals[0])));
+		Output.printColorln(Ansi.Color.WHITE, String.format("%" + displayFilesCol + "s", df.format((double) grandTotals[1])));
+
+		// The render phase ends with the report's totals. The export lines written along with the rows are
+		// taken out of it and counted in the export phase
+		if (metrics != null) {
+			metrics.addPhase("render", System.nanoTime() - phaseStart - ((exportFile == null) ? 0L : exportFile.queryWriteNanos()));
+		}
 
-				// Append [LINK] to the name for symbolic links (Symbolic Link detection doesn't work in Windows)
-				if (Files.isSymbolicLink(Paths.get(mapFullPath.get(key))) == true) {
-					displayName = displayName + " [LINK]";
-				}
+		return (sortedSlots);
+	}
 
-				// Truncate the directory name if it's too long and add a ">" to the end
-				if (key.length() > displayNameCol) {
-					displayName = key.substring(0, Math.min(key.length(), displayNameCol - 3)) + "...";
+	/**
+	 * displayDiff(): Display the change in each root member since the snapshot provided, and the
+	 * directories at any depth that grew the most
+	 * 
+	 * @param dirIndex
+	 * @param results
+	 * @param diffFile
+	 * @param rootDir
+	 * @param sortBy
+	 * @param reverseSort
+	 * @param terminalWidth
+	 * @param growthCount
+	 */
+	static void displayDiff(DirIndex dirIndex, SizeMap results, String diffFile, String rootDir, char sortBy, boolean reverseSort, int terminalWidth,
+			int growthCount) {
+		int displayNameCol = (int) (terminalWidth * DISPLAY_PERCENT_NAME * .01);
+		int displayFilesCol = (int) (terminalWidth * DISPLAY_PERCENT_NUMFILES * .01);
+		int displaySizeCol = (int) (terminalWidth * DISPLAY_PERCENT_DIRSIZE * .01);
+		int displayVisualMap = (int) (terminalWidth * DISPLAY_PERCENT_VISUALMAP * .01) - 5;
+		DecimalFormat df = new DecimalFormat("#,###");
+
+		try {
+			Snapshot oldSnapshot = Snapshot.open(Paths.get(diffFile));
+			SnapshotDiff diff = new SnapshotDiff(dirIndex, oldSnapshot);
+			SizeMap changes = diff.rootChanges(ROOT_DIR_NAME, rootDir);
+
+			// The map shows the size of each change, growing or shrinking, so scale it to the largest
+			long[] changeRange = changes.queryRange(sortBy == 'f', 0);
+			long changeUnits = Math.max(Math.abs(changeRange[0]), Math.abs(changeRange[1])) / displayVisualMap;
+
+			Output.printColorln(Ansi.Color.CYAN, "\nChanges Since " + displayDate(oldSnapshot.queryCreated()) + "  [" + diffFile + "]");
+			displayHeader(sortBy, changeUnits, terminalWidth, displayNameCol, displaySizeCol, displayFilesCol);
+
+			// The changes are for the same root members so their links are already known from the scan
+			HashSet<String> linkedPaths = new HashSet<String>();
+			for (int slot = 0; slot < results.queryCount(); slot++) {
+				if (results.queryLink(slot) == true) {
+					linkedPaths.add(results.queryFullPath(slot));
 				}
+			}
 
-				String outString = String.format("%-" + displayNameCol + "s", displayName);
-				Output.printColor(fgColor, bgColor, outString);
+			int[] changeSlots = changes.sort(sortBy, reverseSort);
+			Renderer changeRenderer = new Renderer(sortBy, changeUnits, displayNameCol, displaySizeCol, displayFilesCol, displayVisualMap);
+			for (int i = 0; i < changeSlots.length; i++) {
+				changeRenderer.row(changes.queryName(changeSlots[i]), changes.querySize(changeSlots[i]), changes.queryFiles(changeSlots[i]),
+						linkedPaths.contains(changes.queryFullPath(changeSlots[i])), i);
+			}
+			changeRenderer.flush();
+
+			Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+			Output.printColor(Ansi.Color.CYAN, String.format("%-" + displayNameCol + "s", "Total Change:"));
+			Output.printColor(Ansi.Color.WHITE, String.format("%" + displaySizeCol + "s", signedBytes(diff.querySizeChange(0))));
+			Output.printColorln(Ansi.Color.WHITE, String.format("%" + displayFilesCol + "s", df.format((double) diff.queryFilesChange(0))));
+
+			// The directories at any depth that grew the most
+			int[] growthSlots = diff.topGrowth(growthCount, sortBy == 'f');
+			int displayPathCol = terminalWidth - displaySizeCol - displayFilesCol;
+
+			Output.printColorln(Ansi.Color.CYAN, "\n" + "-".repeat(terminalWidth));
+			Output.printColor(Ansi.Color.WHITE, "Largest Growth at Any Depth" + " ".repeat(displayPathCol - 27));
+			Output.printColor(Ansi.Color.WHITE, " ".repeat(displaySizeCol - 4) + "Size");
+			Output.printColorln(Ansi.Color.WHITE, " ".repeat(displayFilesCol - 5) + "Files");
+			Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+
+			int shown = 0;
+			for (int slot : growthSlots) {
+				long growth = (sortBy == 'f') ? diff.queryFilesChange(slot) : diff.querySizeChange(slot);
+				if (growth <= 0) {
+					break;
+				}
+				Ansi.Color fgColor = ((shown++ % 2 == 0) ? Ansi.Color.WHITE : Ansi.Color.DEFAULT);
 
-				// DISPLAY SIZE
-				outString = String.format("%" + displaySizeCol + "s", Format.humanReadableBytes(mapSize.get(key)));
-				Output.printColor(fgColor, bgColor, outString);
+				String displayPath = dirIndex.queryPath(slot) + ((diff.queryNew(slot) == true) ? " [NEW]" : "");
+				if (displayPath.length() > displayPathCol - 1) {
+					displayPath = "..." + displayPath.substring(displayPath.length() - (displayPathCol - 4));
+				}
 
-				// DISPLAY FILES
-				DecimalFormat df = new DecimalFormat("#,###");
-				outString = String.format("%" + displayFilesCol + "s", df.format((double) mapFiles.get(key)));
-				Output.printColor(fgColor, bgColor, outString);
+				Output.printColor(fgColor, String.format("%-" + displayPathCol + "s", displayPath));
+				Output.printColor(fgColor, String.format("%" + displaySizeCol + "s", signedBytes(diff.querySizeChange(slot))));
+				Output.printColorln(fgColor, String.format("%" + displayFilesCol + "s", df.format((double) diff.queryFilesChange(slot))));
+			}
+			if (shown == 0) {
+				Output.printColorln(Ansi.Color.WHITE, "No directories have grown");
+			}
 
-				// DISPLAY SIZE OR FILES MAP
-				int numFilledSlots;
-				try {
-					if (sortBy == 'f') {
-						numFilledSlots = (int) (mapFiles.get(key) / unitsPerSlot);
-					} else {
-						numFilledSlots = (int) (mapSize.get(key) / unitsPerSlot);
-					}
-				} catch (ArithmeticException ex) {
-					// If there is an empty directory and no files, unitsPerSlot will be zero. Catch this.
-					numFilledSlots = 0;
-				}
+		} catch (IOException ex) {
+			Output.printColorln(Ansi.Color.RED, "\nUnable to read snapshot '" + diffFile + "': " + ex.getMessage());
+		}
+	}
 
-				// Quick safety check for an out of bounds value
-				if (numFilledSlots > displayVisualMap)
-					numFilledSlots = displayVisualMap;
+	/**
+	 * displayAllDepths(): Display the largest directories found at any depth from the directory index
+	 * and export every directory in it
+	 * 
+	 * @param dirIndex
+	 * @param allDepthTop
+	 * @param sortBy
+	 * @param terminalWidth
+	 * @param exportFile
+	 */
+	static void displayAllDepths(DirIndex dirIndex, int allDepthTop, char sortBy, int terminalWidth, Export exportFile) {
+		int displayFilesCol = (int) (terminalWidth * DISPLAY_PERCENT_NUMFILES * .01);
+		int displaySizeCol = (int) (terminalWidth * DISPLAY_PERCENT_DIRSIZE * .01);
+		int displayPathCol = terminalWidth - displaySizeCol - displayFilesCol;
+		DecimalFormat df = new DecimalFormat("#,###");
+		int[] topSlots = dirIndex.top(allDepthTop, sortBy == 'f');
 
-				int numEmptySlots = displayVisualMap - numFilledSlots;
-				Output.printColor(Ansi.Color.WHITE, "    [");
-				Output.printColor(Ansi.Color.YELLOW, MAP_FILLED_CHAR.repeat(numFilledSlots));
-				Output.printColor(Ansi.Color.CYAN, MAP_EMPTY_CHAR.repeat(numEmptySlots));
-				Output.printColor(Ansi.Color.WHITE, "]");
-				System.out.println();
+		Output.printColorln(Ansi.Color.CYAN, "\n" + "-".repeat(terminalWidth));
+		Output.printColor(Ansi.Color.WHITE, "Largest Directories at Any Depth" + " ".repeat(displayPathCol - 32));
+		Output.printColor(Ansi.Color.WHITE, " ".repeat(displaySizeCol - 4) + "Size");
+		Output.printColorln(Ansi.Color.WHITE, " ".repeat(displayFilesCol - 5) + "Files");
+		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
 
-				// Update the export objects
-				exportFile.addExportLine(displayName, mapSize.get(key), mapFiles.get(key));
+		for (int i = 0; i < topSlots.length; i++) {
+			Ansi.Color fgColor = ((i % 2 == 0) ? Ansi.Color.WHITE : Ansi.Color.DEFAULT);
 
+			// Long paths are truncated from the front as the end of the path is the most useful part
+			String displayPath = dirIndex.queryPath(topSlots[i]);
+			if (displayPath.length() > displayPathCol - 1) {
+				displayPath = "..." + displayPath.substring(displayPath.length() - (displayPathCol - 4));
 			}
-			colorCounter++;
+
+			Output.printColor(fgColor, String.format("%-" + displayPathCol + "s", displayPath));
+			Output.printColor(fgColor, String.format("%" + displaySizeCol + "s", Format.humanReadableBytes(dirIndex.querySize(topSlots[i]))));
+			Output.printColorln(fgColor, String.format("%" + displayFilesCol + "s", df.format((double) dirIndex.queryFiles(topSlots[i]))));
 		}
 
-		// Display the summary information
+		// Export every directory in the index
+		for (int slot = 1; slot < dirIndex.queryCount(); slot++) {
+			exportFile.addExportLine(dirIndex.queryPath(slot), dirIndex.querySize(slot), dirIndex.queryFiles(slot));
+		}
+	}
+
+	/**
+	 * displayTopFiles(): Display the largest files found during the scan and export them after the
+	 * directories
+	 * 
+	 * @param topFiles
+	 * @param rootDir
+	 * @param terminalWidth
+	 * @param exportFile
+	 */
+	static void displayTopFiles(TopFiles topFiles, String rootDir, int terminalWidth, Export exportFile) {
+		int displaySizeCol = (int) (terminalWidth * DISPLAY_PERCENT_DIRSIZE * .01);
+		int displayPathCol = terminalWidth - displaySizeCol;
+		topFiles.sort();
+
+		Output.printColorln(Ansi.Color.CYAN, "\n" + "-".repeat(terminalWidth));
+		Output.printColor(Ansi.Color.WHITE, "Largest Files" + " ".repeat(displayPathCol - 13));
+		Output.printColorln(Ansi.Color.WHITE, " ".repeat(displaySizeCol - 4) + "Size");
 		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
-		// Name
-		String outString = String.format("Directories: %-" + (displayNameCol - 13) + "s", grandTotalSubdirs);
-		Output.printColor(Ansi.Color.CYAN, outString);
-		// Size
-		outString = String.format("%" + displaySizeCol + "s", Format.humanReadableBytes(grandTotalSize));
-		Output.printColor(Ansi.Color.WHITE, outString);
-		// Files
+
+		for (int i = 0; i < topFiles.queryCount(); i++) {
+			Ansi.Color fgColor = ((i % 2 == 0) ? Ansi.Color.WHITE : Ansi.Color.DEFAULT);
+
+			// Show the path relative to the root directory, truncated from the front if it's too long
+			String displayPath = Paths.get(rootDir).relativize(Paths.get(topFiles.queryPath(i))).toString();
+			if (displayPath.length() > displayPathCol - 1) {
+				displayPath = "..." + displayPath.substring(displayPath.length() - (displayPathCol - 4));
+			}
+
+			Output.printColor(fgColor, String.format("%-" + displayPathCol + "s", displayPath));
+			Output.printColorln(fgColor, String.format("%" + displaySizeCol + "s", Format.humanReadableBytes(topFiles.querySize(i))));
+
+			// Files are exported after the directories with a file count of one
+			exportFile.addExportLine(topFiles.queryPath(i), topFiles.querySize(i), 1);
+		}
+	}
+
+	/**
+	 * displayErrors(): Display the count of each cause of the scanning errors with the first few paths
+	 * found
+	 * 
+	 * @param terminalWidth
+	 */
+	static void displayErrors(int terminalWidth) {
 		DecimalFormat df = new DecimalFormat("#,###");
-		outString = String.format("%" + displayFilesCol + "s", df.format((double) grandTotalFiles));
-		Output.printColor(Ansi.Color.WHITE, outString);
 
-		// Gather and display benchmark data
-		float timeDelta = benchmarkTimer.Stop();
-		float filesPerMS = grandTotalFiles / timeDelta;
-		outString = String.format("\nScanning Time: %,d ms (%,.3f files/ms)", (int) timeDelta, filesPerMS);
-		Output.printColorln(Ansi.Color.CYAN, "\n" + outString);
+		// Display the output header
+		Output.printColorln(Ansi.Color.RED, "\n" + "-".repeat(terminalWidth));
+		Output.printColorln(Ansi.Color.RED, "Scanning Errors  [Use -e to suppress]");
+		Output.printColorln(Ansi.Color.RED, "-".repeat(terminalWidth));
+
+		for (ScanErrors.Cause cause : ScanErrors.Cause.values()) {
+			long causeCount = scanErrors.queryCount(cause);
+			if (causeCount == 0) {
+				continue;
+			}
 
-		// If Error Display is enabled and we have some errors, show them
-		if (errorDisplayFlag == true && errorList.isEmpty() != true) {
-			// Display the output header
-			Output.printColorln(Ansi.Color.RED, "\n" + "-".repeat(terminalWidth));
-			Output.printColorln(Ansi.Color.RED, "Scanning Errors  [Use -e to suppress]");
-			Output.printColorln(Ansi.Color.RED, "-".repeat(terminalWidth));
+			Output.printColorln(Ansi.Color.RED, cause.queryLabel() + ": " + df.format((double) causeCount));
+			int shown = 0;
+			while (shown < ScanErrors.MAX_SAMPLES && scanErrors.querySample(cause, shown) != null) {
+				Output.printColorln(Ansi.Color.RED, "   " + scanErrors.querySample(cause, shown));
+				shown++;
+			}
+			if (causeCount > shown) {
+				Output.printColorln(Ansi.Color.RED, "   ... and " + df.format((double) (causeCount - shown)) + " more");
+			}
+		}
+	}
+
+	/**
+	 * writeMetrics(): Add the export phase and the counters kept during the run to the metrics and write
+	 * them to the file provided
+	 * 
+	 * @param metrics
+	 * @param metricsFile
+	 * @param rootDir
+	 * @param scanMode
+	 * @param grandTotals
+	 * @param filter
+	 * @param throttle
+	 * @param scanCache
+	 * @param exportFile
+	 */
+	static void writeMetrics(Metrics metrics, String metricsFile, String rootDir, String scanMode, long[] grandTotals, PathFilter filter, Throttle throttle,
+			ScanCache scanCache, Export exportFile) {
+		metrics.addPhase("export", exportFile.queryWriteNanos());
+		metrics.counter("errors", scanErrors.queryTotal());
+		for (ScanErrors.Cause cause : ScanErrors.Cause.values()) {
+			metrics.counter("errors" + cause.name().charAt(0) + cause.name().substring(1).toLowerCase(), scanErrors.queryCount(cause));
+		}
+		if (filter != null) {
+			metrics.counter("excluded", filter.queryExcluded());
+		}
+		if (throttle != null) {
+			metrics.counter("throttleWaitMs", TimeUnit.NANOSECONDS.toMillis(throttle.queryWaitNanos()));
+		}
+		if (scanCache != null) {
+			metrics.counter("cacheHits", scanCache.queryHits());
+			metrics.counter("cacheMisses", scanCache.queryMisses());
+		}
+
+		if (metrics.write(metricsFile, rootDir, scanMode, grandTotals[2], grandTotals[0], grandTotals[1]) == true) {
+			Output.printColorln(Ansi.Color.CYAN, "\nMetrics written to file: " + metricsFile);
+		}
+	}
+
+	/**
+	 * displayAges(): Display the share of each directory's bytes in each age bucket and how much of it is
+	 * cold, in the same order as the report
+	 * 
+	 * @param ages
+	 * @param results
+	 * @param sortedSlots
+	 * @param terminalWidth
+	 */
+	static void displayAges(AgeHistogram ages, SizeMap results, int[] sortedSlots, int terminalWidth) {
+		int displayNameCol = (int) (terminalWidth * DISPLAY_PERCENT_NAME * .01);
+		int displayColdCol = (int) (terminalWidth * DISPLAY_PERCENT_DIRSIZE * .01);
+		int displayBucketCol = (terminalWidth - displayNameCol - displayColdCol) / AgeHistogram.BUCKETS;
+		String timeName = (ages.queryAccessTime() == true) ? "Accessed" : "Modified";
+
+		Output.printColorln(Ansi.Color.CYAN, "\n" + "-".repeat(terminalWidth));
+		Output.printColorln(Ansi.Color.WHITE, "Age of Data by Last " + timeName + " Time  [Cold: not " + timeName.toLowerCase() + " in " + AgeHistogram.COLD_DAYS
+				+ " days or more]");
+		StringBuilder header = new StringBuilder(String.format("%-" + displayNameCol + "s", "Directory"));
+		for (String label : AgeHistogram.BUCKET_LABELS) {
+			header.append(String.format("%" + displayBucketCol + "s", label));
+		}
+		header.append(String.format("%" + displayColdCol + "s", "Cold"));
+		Output.printColorln(Ansi.Color.WHITE, header.toString());
+		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+
+		for (int i = 0; i < sortedSlots.length; i++) {
+			Ansi.Color fgColor = ((i % 2 == 0) ? Ansi.Color.WHITE : Ansi.Color.DEFAULT);
+			Output.printColorln(fgColor, ageRow(results.queryName(sortedSlots[i]), ages.queryBytes(sortedSlots[i]), displayNameCol, displayBucketCol, displayColdCol));
+		}
+		if (sortedSlots.length < results.queryCount()) {
+			Ansi.Color fgColor = ((sortedSlots.length % 2 == 0) ? Ansi.Color.WHITE : Ansi.Color.DEFAULT);
+			Output.printColorln(fgColor, ageRow(OTHERS_NAME + " " + (results.queryCount() - sortedSlots.length), othersAgeBytes(ages, sortedSlots), displayNameCol,
+					displayBucketCol, displayColdCol));
+		}
+
+		// The totals of every row and the cold data summary. Unlike the size in the report's totals, they
+		// include the bytes of the files in the root directory, so the label says so
+		long[] totalBytes = ages.queryTotalBytes();
+		long allBytes = 0;
+		for (int b = 0; b < AgeHistogram.BUCKETS; b++) {
+			allBytes += totalBytes[b];
+		}
+		long coldBytes = AgeHistogram.coldSum(totalBytes);
+		long coldFiles = AgeHistogram.coldSum(ages.queryTotalFiles());
+		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+		Output.printColorln(Ansi.Color.WHITE, ageRow("Total with " + ROOT_DIR_NAME, totalBytes, displayNameCol, displayBucketCol, displayColdCol));
+		Output.printColorln(Ansi.Color.CYAN, "\nCold Data: " + Format.humanReadableBytes(coldBytes) + " of " + Format.humanReadableBytes(allBytes) + " ("
+				+ agePercent(coldBytes, allBytes) + ") in " + new DecimalFormat("#,###").format((double) coldFiles) + " files");
+	}
+
+	/**
+	 * ageRow(): Return a line of the age report with the share of the bytes in each bucket and the cold
+	 * bytes
+	 * 
+	 * @param name
+	 * @param bucketBytes
+	 * @param displayNameCol
+	 * @param displayBucketCol
+	 * @param displayColdCol
+	 * @return
+	 */
+	static String ageRow(String name, long[] bucketBytes, int displayNameCol, int displayBucketCol, int displayColdCol) {
+		long rowBytes = 0;
+		for (int b = 0; b < AgeHistogram.BUCKETS; b++) {
+			rowBytes += bucketBytes[b];
+		}
+
+		if (name.length() > displayNameCol) {
+			name = name.substring(0, displayNameCol - 3) + "...";
+		}
+		StringBuilder row = new StringBuilder(String.format("%-" + displayNameCol + "s", name));
+		for (int b = 0; b < AgeHistogram.BUCKETS; b++) {
+			row.append(String.format("%" + displayBucketCol + "s", agePercent(bucketBytes[b], rowBytes)));
+		}
+		row.append(String.format("%" + displayColdCol + "s", Format.humanReadableBytes(AgeHistogram.coldSum(bucketBytes))));
+		return (row.toString());
+	}
+
+	/**
+	 * agePercent(): Return the bytes as a whole percentage of the total, or "-" if there are none
+	 * 
+	 * @param bytes
+	 * @param totalBytes
+	 * @return
+	 */
+	static String agePercent(long bytes, long totalBytes) {
+		if (bytes == 0 || totalBytes == 0) {
+			return ("-");
+		}
+		return (Math.round(100.0 * bytes / totalBytes) + "%");
+	}
 
-			// Display the contents of the error list
-			for (Map.Entry<String, String> i : errorList.entrySet()) {
-				Output.printColorln(Ansi.Color.RED, i.getKey());
+	/**
+	 * othersAgeBytes(): Return the bytes in each age bucket of every entry left out by --top
+	 * 
+	 * @param ages
+	 * @param shownSlots
+	 * @return
+	 */
+	static long[] othersAgeBytes(AgeHistogram ages, int[] shownSlots) {
+		long[] others = ages.queryTotalBytes();
+		for (int slot : shownSlots) {
+			for (int b = 0; b < AgeHistogram.BUCKETS; b++) {
+				others[b] -= ages.queryBytes(slot, b);
 			}
 		}
+		return (others);
+	}
 
-		// Export the results to a CSV file if user requested an export
-		if (exportFlag == true) {
-			if (exportFile.writeToDisk() == false) {
-				Output.printColorln(Ansi.Color.RED, "Error exporting to file: " + exportFile.getName());
+	/**
+	 * displayIndexRoot(): Display the report for a directory below the scanned root from the totals kept
+	 * in the directory index, without reading it again. The rows are exported with the directory's path
+	 * in front of their names if an export file is provided
+	 * 
+	 * @param dirIndex
+	 * @param scannedRoot
+	 * @param reportRoot
+	 * @param sortBy
+	 * @param reverseSort
+	 * @param terminalWidth
+	 * @param topRows
+	 * @param exportFile
+	 */
+	static void displayIndexRoot(DirIndex dirIndex, Path scannedRoot, Path reportRoot, char sortBy, boolean reverseSort, int terminalWidth, int topRows,
+			Export exportFile) {
+		Output.printColorln(Ansi.Color.CYAN, "\n" + reportRoot + "  [From the scan of " + scannedRoot + "]");
+
+		int baseSlot = dirIndex.findPath(scannedRoot.relativize(reportRoot).toString());
+		if (baseSlot < 0) {
+			Output.printColorln(Ansi.Color.RED, "'" + reportRoot + "' could not be scanned");
+			return;
+		}
+
+		// The files directly in the directory are what's left after its subdirectories are taken out
+		SizeMap results = new SizeMap();
+		int rootSlot = results.add(ROOT_DIR_NAME, reportRoot.toString(), 0L, 0L);
+		long localSize = dirIndex.querySize(baseSlot);
+		long localFiles = dirIndex.queryFiles(baseSlot);
+		for (int child : dirIndex.queryChildren(baseSlot)) {
+			String fullPath = reportRoot.resolve(dirIndex.queryName(child)).toString();
+			int slot = results.add(dirIndex.queryName(child), fullPath, dirIndex.querySize(child), dirIndex.queryFiles(child));
+			results.setLink(slot, dirIndex.queryLink(child));
+			localSize -= dirIndex.querySize(child);
+			localFiles -= dirIndex.queryFiles(child);
+		}
+		results.addTotals(rootSlot, localSize, localFiles);
+
+		displayMembers(results, rootSlot, dirIndex.querySize(baseSlot), dirIndex.queryFiles(baseSlot), sortBy, reverseSort, terminalWidth, topRows,
+				exportFile);
+	}
+
+	/**
+	 * displayMembers(): Display the size and files report of a directory's members already totaled in a
+	 * SizeMap, followed by the directory's totals. If an export file is provided, each row is exported
+	 * under the path of the [RootDir] slot
+	 * 
+	 * @param results
+	 * @param rootSlot
+	 * @param totalSize
+	 * @param totalFiles
+	 * @param sortBy
+	 * @param reverseSort
+	 * @param terminalWidth
+	 * @param topRows
+	 * @param exportFile
+	 */
+	static void displayMembers(SizeMap results, int rootSlot, long totalSize, long totalFiles, char sortBy, boolean reverseSort, int terminalWidth, int topRows,
+			Export exportFile) {
+		int displayNameCol = (int) (terminalWidth * DISPLAY_PERCENT_NAME * .01);
+		int displayFilesCol = (int) (terminalWidth * DISPLAY_PERCENT_NUMFILES * .01);
+		int displaySizeCol = (int) (terminalWidth * DISPLAY_PERCENT_DIRSIZE * .01);
+		int displayVisualMap = (int) (terminalWidth * DISPLAY_PERCENT_VISUALMAP * .01) - 5;
+
+		long[] range = results.queryRange(sortBy == 'f', rootSlot);
+		long unitsPerSlot = (range[1] - range[0]) / displayVisualMap;
+
+		displayHeader(sortBy, unitsPerSlot, terminalWidth, displayNameCol, displaySizeCol, displayFilesCol);
+		int[] sortedSlots = (topRows > 0) ? results.top(topRows, sortBy, reverseSort) : results.sort(sortBy, reverseSort);
+		Renderer renderer = new Renderer(sortBy, unitsPerSlot, displayNameCol, displaySizeCol, displayFilesCol, displayVisualMap);
+		Path exportRoot = Paths.get(results.queryFullPath(rootSlot));
+		for (int i = 0; i < sortedSlots.length; i++) {
+			String displayName = renderer.row(results.queryName(sortedSlots[i]), results.querySize(sortedSlots[i]), results.queryFiles(sortedSlots[i]),
+					results.queryLink(sortedSlots[i]), i);
+			if (exportFile != null) {
+				exportFile.addExportLine(exportRoot.resolve(displayName).toString(), results.querySize(sortedSlots[i]), results.queryFiles(sortedSlots[i]));
 			}
 		}
+		if (sortedSlots.length < results.queryCount()) {
+			long[] others = results.queryOthers(sortedSlots);
+			String displayName = renderer.row(OTHERS_NAME + " " + others[2], others[0], others[1], false, sortedSlots.length);
+			if (exportFile != null) {
+				exportFile.addExportLine(exportRoot.resolve(displayName).toString(), others[0], others[1]);
+			}
+		}
+		renderer.flush();
 
+		DecimalFormat df = new DecimalFormat("#,###");
+		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+		Output.printColor(Ansi.Color.CYAN, String.format("Directories: %-" + (displayNameCol - 13) + "s", results.queryCount()));
+		Output.printColor(Ansi.Color.WHITE, String.format("%" + displaySizeCol + "s", Format.humanReadableBytes(totalSize)));
+		Output.printColorln(Ansi.Color.WHITE, String.format("%" + displayFilesCol + "s", df.format((double) totalFiles)));
+	}
+
+	/**
+	 * displaySnapshot(): Display the report for a directory in a snapshot without scanning. The totals
+	 * of each subdirectory are read straight from the mapped snapshot
+	 * 
+	 * @param snapshotFile
+	 * @param subPath
+	 * @param sortBy
+	 * @param reverseSort
+	 * @param terminalWidth
+	 * @param topCount
+	 * @param topRows
+	 */
+	static void displaySnapshot(String snapshotFile, String subPath, char sortBy, boolean reverseSort, int terminalWidth, int topCount, int topRows) {
+		long startNanos = System.nanoTime();
+		Snapshot snapshot = null;
+		try {
+			snapshot = Snapshot.open(Paths.get(snapshotFile));
+		} catch (IOException ex) {
+			Output.fatalError("Unable to read snapshot '" + snapshotFile + "': " + ex.getMessage(), 1);
+		}
+
+		// A full path must be below the snapshot's root and is made relative to it. Paths are compared by
+		// name so a sibling that only shares the root's prefix isn't mistaken for a directory inside it
+		String rootName = snapshot.queryName(0);
+		Path rootPath = Paths.get(rootName).normalize();
+		Path requestedPath = Paths.get(subPath).normalize();
+		if (requestedPath.isAbsolute() == true) {
+			if (requestedPath.startsWith(rootPath) == false) {
+				Output.fatalError("'" + subPath + "' is not in the snapshot of " + rootName, 1);
+			}
+			subPath = rootPath.relativize(requestedPath).toString();
+		}
+		int baseRec = snapshot.findPath(subPath);
+		if (baseRec < 0) {
+			Output.fatalError("'" + subPath + "' is not in the snapshot of " + rootName, 1);
+		}
+		String baseDir = Paths.get(rootName, subPath).toString();
+
+		// The files directly in the directory are what's left after its subdirectories are taken out
+		SizeMap results = new SizeMap();
+		int rootSlot = results.add(ROOT_DIR_NAME, baseDir, 0L, 0L);
+		long localSize = snapshot.querySize(baseRec);
+		long localFiles = snapshot.queryFiles(baseRec);
+		int firstChild = snapshot.queryFirstChild(baseRec);
+		for (int rec = firstChild; rec < firstChild + snapshot.queryChildCount(baseRec); rec++) {
+			String name = snapshot.queryName(rec);
+			int slot = results.add(name, Paths.get(baseDir, name).toString(), snapshot.querySize(rec), snapshot.queryFiles(rec));
+			results.setLink(slot, snapshot.queryLink(rec));
+			localSize -= snapshot.querySize(rec);
+			localFiles -= snapshot.queryFiles(rec);
+		}
+		results.addTotals(rootSlot, localSize, localFiles);
+
+		// The directory's own modification time shows when entries were last added or removed directly in it
+		String modified = (snapshot.queryModified(baseRec) > 0) ? "Modified " + displayDate(snapshot.queryModified(baseRec)) + ", " : "";
+		Output.printColorln(Ansi.Color.CYAN, "Snapshot of " + baseDir + " saved " + displayDate(snapshot.queryCreated()) + "  [" + modified + "Read in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms]");
+		displayMembers(results, rootSlot, snapshot.querySize(baseRec), snapshot.queryFiles(baseRec), sortBy, reverseSort, terminalWidth, topRows, null);
+
+		// The largest directories below this one at any depth
+		if (topCount > 0) {
+			int displayFilesCol = (int) (terminalWidth * DISPLAY_PERCENT_NUMFILES * .01);
+			int displaySizeCol = (int) (terminalWidth * DISPLAY_PERCENT_DIRSIZE * .01);
+			DecimalFormat df = new DecimalFormat("#,###");
+			int[] topRecs = snapshot.top(topCount, sortBy == 'f', baseRec);
+			int displayPathCol = terminalWidth - displaySizeCol - displayFilesCol;
+
+			Output.printColorln(Ansi.Color.CYAN, "\n" + "-".repeat(terminalWidth));
+			Output.printColor(Ansi.Color.WHITE, "Largest Directories at Any Depth" + " ".repeat(displayPathCol - 32));
+			Output.printColor(Ansi.Color.WHITE, " ".repeat(displaySizeCol - 4) + "Size");
+			Output.printColorln(Ansi.Color.WHITE, " ".repeat(displayFilesCol - 5) + "Files");
+			Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+
+			for (int i = 0; i < topRecs.length; i++) {
+				Ansi.Color fgColor = ((i % 2 == 0) ? Ansi.Color.WHITE : Ansi.Color.DEFAULT);
+
+				String displayPath = snapshot.queryPath(topRecs[i]);
+				if (displayPath.length() > displayPathCol - 1) {
+					displayPath = "..." + displayPath.substring(displayPath.length() - (displayPathCol - 4));
+				}
+
+				Output.printColor(fgColor, String.format("%-" + displayPathCol + "s", displayPath));
+				Output.printColor(fgColor, String.format("%" + displaySizeCol + "s", Format.humanReadableBytes(snapshot.querySize(topRecs[i]))));
+				Output.printColorln(fgColor, String.format("%" + displayFilesCol + "s", df.format((double) snapshot.queryFiles(topRecs[i]))));
+			}
+		}
+	}
+
+	/**
+	 * displayDate(): Return a time in milliseconds as a local date and time
+	 * 
+	 * @param millis
+	 * @return
+	 */
+	static String displayDate(long millis) {
+		return (DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").format(Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault())));
+	}
+
+	/**
+	 * displayHeader(): Display the column headings of a directory report with the scale of the map
+	 * 
+	 * @param sortBy
+	 * @param unitsPerSlot
+	 * @param terminalWidth
+	 * @param displayNameCol
+	 * @param displaySizeCol
+	 * @param displayFilesCol
+	 */
+	static void displayHeader(char sortBy, long unitsPerSlot, int terminalWidth, int displayNameCol, int displaySizeCol, int displayFilesCol) {
+		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+		Output.printColor(Ansi.Color.WHITE, "Directory" + " ".repeat(displayNameCol - 9));
+		Output.printColor(Ansi.Color.WHITE, " ".repeat(displaySizeCol - 4) + "Size");
+		Output.printColor(Ansi.Color.WHITE, " ".repeat(displayFilesCol - 5) + "Files");
+		if (sortBy == 'f') {
+			Output.printColor(Ansi.Color.WHITE, "    Files Map [" + unitsPerSlot + " files/slot]");
+		} else {
+			Output.printColor(Ansi.Color.WHITE, "    Size Map [" + Format.humanReadableBytes(unitsPerSlot) + "/slot]");
+		}
+		Output.printColorln(Ansi.Color.CYAN, "\n" + "-".repeat(terminalWidth));
+	}
+
+	/**
+	 * signedBytes(): Return a human readable size that may be negative, such as a change in size
+	 * 
+	 * @param bytes
+	 * @return
+	 */
+	static String signedBytes(long bytes) {
+		if (bytes < 0) {
+			return ("-" + Format.humanReadableBytes(-bytes));
+		}
+		return (Format.humanReadableBytes(bytes));
 	}
 
 }
\ No newline at end of file
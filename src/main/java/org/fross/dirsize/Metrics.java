@@ -0,0 +1,248 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.fross.library.Output;
+import org.fusesource.jansi.Ansi;
+
+/**
+ * Metrics collects the timing of each phase of a run, the scan time of each root member and counters
+ * of the file system calls made. It's written as a JSON file (--metrics) so scan times can be tracked
+ * from run to run.
+ *
+ * The counters are LongAdders as every scanning thread updates them. Phases are only timed by the
+ * main thread.
+ *
+ * @author michael.d.fross
+ */
+public class Metrics {
+	private final LongAdder dirsListed = new LongAdder();
+	private final LongAdder statCalls = new LongAdder();
+	private final Map<String, Long> phaseNanos = new LinkedHashMap<String, Long>();
+	private final Map<String, Long> counters = new LinkedHashMap<String, Long>();
+	private final List<String> memberNames = new ArrayList<String>();
+	private final List<Long> memberNanos = new ArrayList<Long>();
+
+	/**
+	 * listed(): Count a directory read from the file system
+	 */
+	public void listed() {
+		dirsListed.increment();
+	}
+
+	/**
+	 * stat(): Count a file attribute read
+	 */
+	public void stat() {
+		statCalls.increment();
+	}
+
+	/**
+	 * phase(): Add the time since startNanos to the named phase
+	 * 
+	 * @param name
+	 * @param startNanos
+	 */
+	public void phase(String name, long startNanos) {
+		addPhase(name, System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * addPhase(): Add an elapsed time in nanoseconds to the named phase
+	 * 
+	 * @param name
+	 * @param nanos
+	 */
+	public void addPhase(String name, long nanos) {
+		phaseNanos.merge(name, nanos, Long::sum);
+	}
+
+	/**
+	 * counter(): Set a counter that isn't kept during the scan, such as the number of errors
+	 * 
+	 * @param name
+	 * @param value
+	 */
+	public void counter(String name, long value) {
+		counters.put(name, value);
+	}
+
+	/**
+	 * member(): Record how long a root member took to scan. Called by the scanning threads
+	 * 
+	 * @param name
+	 * @param nanos
+	 */
+	public synchronized void member(String name, long nanos) {
+		memberNames.add(name);
+		memberNanos.add(nanos);
+	}
+
+	/**
+	 * queryDirsListed(): Return the number of directories read from the file system
+	 * 
+	 * @return
+	 */
+	public long queryDirsListed() {
+		return (dirsListed.sum());
+	}
+
+	/**
+	 * queryStatCalls(): Return the number of file attribute reads
+	 * 
+	 * @return
+	 */
+	public long queryStatCalls() {
+		return (statCalls.sum());
+	}
+
+	/**
+	 * write(): Write the metrics to a JSON file. The totals are the ones shown in the report footer
+	 * 
+	 * @param fileName
+	 * @param rootDir
+	 * @param scanMode
+	 * @param totalDirs
+	 * @param totalSize
+	 * @param totalFiles
+	 * @return
+	 */
+	public synchronized boolean write(String fileName, String rootDir, String scanMode, long totalDirs, long totalSize, long totalFiles) {
+		StringBuilder json = new StringBuilder(1024);
+
+		json.append("{\n");
+		json.append("  \"version\": ").append(quote(Main.VERSION)).append(",\n");
+		json.append("  \"timestamp\": ").append(quote(OffsetDateTime.now().toString())).append(",\n");
+		json.append("  \"rootDir\": ").append(quote(rootDir)).append(",\n");
+		json.append("  \"scanMode\": ").append(quote(scanMode)).append(",\n");
+
+		json.append("  \"totals\": {\n");
+		json.append("    \"directories\": ").append(totalDirs).append(",\n");
+		json.append("    \"size\": ").append(totalSize).append(",\n");
+		json.append("    \"files\": ").append(totalFiles).append("\n");
+		json.append("  },\n");
+
+		json.append("  \"counters\": {\n");
+		json.append("    \"directoriesListed\": ").append(dirsListed.sum()).append(",\n");
+		json.append("    \"statCalls\": ").append(statCalls.sum());
+		for (Map.Entry<String, Long> c : counters.entrySet()) {
+			json.append(",\n    ").append(quote(c.getKey())).append(": ").append(c.getValue());
+		}
+		json.append("\n  },\n");
+
+		json.append("  \"phasesMs\": {");
+		String separator = "\n";
+		for (Map.Entry<String, Long> p : phaseNanos.entrySet()) {
+			json.append(separator).append("    ").append(quote(p.getKey())).append(": ").append(millis(p.getValue()));
+			separator = ",\n";
+		}
+		json.append("\n  },\n");
+
+		json.append("  \"membersMs\": [");
+		separator = "\n";
+		for (int i = 0; i < memberNames.size(); i++) {
+			json.append(separator).append("    { \"name\": ").append(quote(memberNames.get(i))).append(", \"ms\": ").append(millis(memberNanos.get(i)))
+					.append(" }");
+			separator = ",\n";
+		}
+		json.append("\n  ]\n");
+		json.append("}\n");
+
+		try (BufferedWriter out = Files.newBufferedWriter(Paths.get(fileName), StandardCharsets.UTF_8)) {
+			out.write(json.toString());
+		} catch (IOException ex) {
+			Output.printColorln(Ansi.Color.RED, "Error writing metrics file: " + ex.getMessage());
+			return (false);
+		}
+
+		Output.debugPrintln("Metrics written to: " + fileName);
+		return (true);
+	}
+
+	/**
+	 * millis(): Format nanoseconds as milliseconds with three decimal places
+	 * 
+	 * @param nanos
+	 * @return
+	 */
+	private static String millis(long nanos) {
+		return (String.format("%d.%03d", nanos / 1000000, (nanos / 1000) % 1000));
+	}
+
+	/**
+	 * quote(): Return the string as a quoted JSON string
+	 * 
+	 * @param s
+	 * @return
+	 */
+	static String quote(String s) {
+		StringBuilder sb = new StringBuilder(s.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+				break;
+			}
+		}
+		sb.append('"');
+		return (sb.toString());
+	}
+
+}
@@ -0,0 +1,223 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PathFilter holds the --exclude and --include patterns. Each pattern is compiled once into a
+ * PathMatcher and checked by the scanner as entries are listed:
+ *
+ * - An entry matching an exclude pattern is skipped before its attributes are read. An excluded
+ * directory is never listed, so nothing below it costs any I/O.
+ *
+ * - When include patterns are given, only files matching one of them are counted. Directories are
+ * still descended into unless they are excluded.
+ *
+ * Patterns are globs unless they start with "regex:" ("glob:" can also be given). A pattern with a
+ * '/' is matched against the path relative to the root directory, otherwise against the name alone.
+ *
+ * When several directories are reported from one scan of their common parent, the scan is also
+ * limited to those directories. Anything that isn't inside one of them, or on the way down to one, is
+ * skipped like an excluded entry.
+ *
+ * @author michael.d.fross
+ */
+public class PathFilter {
+	private final Path rootDir;
+	private final List<PathMatcher> excludeNames = new ArrayList<PathMatcher>();
+	private final List<PathMatcher> excludePaths = new ArrayList<PathMatcher>();
+	private final List<PathMatcher> includeNames = new ArrayList<PathMatcher>();
+	private final List<PathMatcher> includePaths = new ArrayList<PathMatcher>();
+	private final List<Path> scanRoots = new ArrayList<Path>();
+	private final List<String> patterns = new ArrayList<String>();
+	private final LongAdder excluded = new LongAdder();
+
+	/**
+	 * Constructor: Set the root directory path patterns are relative to
+	 * 
+	 * @param rootDir
+	 */
+	public PathFilter(Path rootDir) {
+		this.rootDir = rootDir;
+	}
+
+	/**
+	 * addExclude(): Skip entries matching the pattern. Throws IllegalArgumentException if the pattern
+	 * is invalid
+	 * 
+	 * @param pattern
+	 */
+	public void addExclude(String pattern) {
+		compile(pattern, excludeNames, excludePaths);
+		patterns.add("exclude=" + pattern);
+	}
+
+	/**
+	 * addInclude(): Only count files matching this pattern or another include pattern. Throws
+	 * IllegalArgumentException if the pattern is invalid
+	 * 
+	 * @param pattern
+	 */
+	public void addInclude(String pattern) {
+		compile(pattern, includeNames, includePaths);
+		patterns.add("include=" + pattern);
+	}
+
+	/**
+	 * addScanRoot(): Limit the scan to this directory, along with any others added, and the directories
+	 * leading down to it from the root. The path must be absolute and normalized
+	 * 
+	 * @param scanRoot
+	 */
+	public void addScanRoot(Path scanRoot) {
+		scanRoots.add(scanRoot);
+		patterns.add("root=" + scanRoot);
+	}
+
+	/**
+	 * compile(): Create the PathMatcher for a pattern and add it to the name or the path list
+	 * 
+	 * @param pattern
+	 * @param names
+	 * @param paths
+	 */
+	private static void compile(String pattern, List<PathMatcher> names, List<PathMatcher> paths) {
+		String syntaxAndPattern = pattern;
+		if (pattern.startsWith("glob:") == false && pattern.startsWith("regex:") == false) {
+			syntaxAndPattern = "glob:" + pattern;
+		}
+
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
+		if (syntaxAndPattern.indexOf('/') >= 0) {
+			paths.add(matcher);
+		} else {
+			names.add(matcher);
+		}
+	}
+
+	/**
+	 * excluded(): Returns true if the entry matches an exclude pattern and should be skipped
+	 * 
+	 * @param entry
+	 * @return
+	 */
+	public boolean excluded(Path entry) {
+		if (scanRoots.isEmpty() == false && inScanRoots(entry) == false) {
+			return (true);
+		}
+		if (matches(entry, excludeNames, excludePaths) == true) {
+			excluded.increment();
+			return (true);
+		}
+		return (false);
+	}
+
+	/**
+	 * inScanRoots(): Returns true if the entry is inside one of the scan roots or is a directory above one
+	 * 
+	 * @param entry
+	 * @return
+	 */
+	private boolean inScanRoots(Path entry) {
+		for (Path scanRoot : scanRoots) {
+			if (entry.startsWith(scanRoot) == true || scanRoot.startsWith(entry) == true) {
+				return (true);
+			}
+		}
+		return (false);
+	}
+
+	/**
+	 * included(): Returns true if the file should be counted. Every file is counted when there are no
+	 * include patterns
+	 * 
+	 * @param file
+	 * @return
+	 */
+	public boolean included(Path file) {
+		if (includeNames.isEmpty() == true && includePaths.isEmpty() == true) {
+			return (true);
+		}
+		return (matches(file, includeNames, includePaths));
+	}
+
+	/**
+	 * matches(): Returns true if the entry's name or relative path matches one of the patterns
+	 * 
+	 * @param entry
+	 * @param names
+	 * @param paths
+	 * @return
+	 */
+	private boolean matches(Path entry, List<PathMatcher> names, List<PathMatcher> paths) {
+		if (names.isEmpty() == false) {
+			Path name = entry.getFileName();
+			for (PathMatcher matcher : names) {
+				if (matcher.matches(name) == true) {
+					return (true);
+				}
+			}
+		}
+
+		if (paths.isEmpty() == false) {
+			Path relativePath = rootDir.relativize(entry);
+			for (PathMatcher matcher : paths) {
+				if (matcher.matches(relativePath) == true) {
+					return (true);
+				}
+			}
+		}
+
+		return (false);
+	}
+
+	/**
+	 * queryExcluded(): Return the number of entries skipped by an exclude pattern
+	 * 
+	 * @return
+	 */
+	public long queryExcluded() {
+		return (excluded.sum());
+	}
+
+	/**
+	 * querySignature(): Return the patterns in the order given so a scan cache written with other
+	 * patterns isn't used
+	 * 
+	 * @return
+	 */
+	public String querySignature() {
+		return (String.join(";", patterns));
+	}
+
+}
@@ -0,0 +1,182 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.fross.library.Format;
+import org.fross.library.Output;
+import org.fusesource.jansi.Ansi;
+
+/**
+ * Progress shows a live status line while the scan runs: elapsed time, directories completed out of
+ * those queued, files and bytes counted with their rates, and the directory being read.
+ *
+ * The scanner updates LongAdder counters once per directory, so scanning threads never wait on each
+ * other or on the display. A single daemon thread reads the counters and redraws the line at a fixed
+ * rate.
+ *
+ * @author michael.d.fross
+ */
+public class Progress {
+	private static final long REFRESH_MS = 250;
+
+	private final LongAdder dirsQueued = new LongAdder();
+	private final LongAdder dirsCompleted = new LongAdder();
+	private final LongAdder filesCounted = new LongAdder();
+	private final LongAdder bytesCounted = new LongAdder();
+	private volatile Path currentPath = null;
+	private final DecimalFormat df = new DecimalFormat("#,###");
+	private final int lineWidth;
+	private long startTime = 0;
+	private ScheduledExecutorService refresher = null;
+
+	/**
+	 * Constructor: Set the width the status line must fit in
+	 * 
+	 * @param lineWidth
+	 */
+	public Progress(int lineWidth) {
+		this.lineWidth = lineWidth;
+	}
+
+	/**
+	 * queue(): Count directories waiting to be scanned
+	 * 
+	 * @param dirs
+	 */
+	public void queue(long dirs) {
+		dirsQueued.add(dirs);
+	}
+
+	/**
+	 * started(): Record the directory currently being read
+	 * 
+	 * @param dir
+	 */
+	public void started(Path dir) {
+		currentPath = dir;
+	}
+
+	/**
+	 * completed(): Count a finished directory, its files and bytes, and the subdirectories it queued
+	 * 
+	 * @param size
+	 * @param files
+	 * @param subDirs
+	 */
+	public void completed(long size, long files, int subDirs) {
+		bytesCounted.add(size);
+		filesCounted.add(files);
+		dirsQueued.add(subDirs);
+		dirsCompleted.increment();
+	}
+
+	/**
+	 * counted(): Count a file found outside of a scanned directory, such as the root directory files
+	 * 
+	 * @param size
+	 */
+	public void counted(long size) {
+		bytesCounted.add(size);
+		filesCounted.increment();
+	}
+
+	/**
+	 * start(): Begin redrawing the status line at a fixed rate
+	 */
+	public void start() {
+		startTime = System.nanoTime();
+		refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "dirsize-progress");
+			t.setDaemon(true);
+			return t;
+		});
+		refresher.scheduleAtFixedRate(this::redraw, REFRESH_MS, REFRESH_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * stop(): Stop the refresh thread and draw the final totals
+	 */
+	public void stop() {
+		if (refresher == null) {
+			return;
+		}
+
+		refresher.shutdownNow();
+		try {
+			refresher.awaitTermination(REFRESH_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		currentPath = null;
+		redraw();
+		Output.println("");
+	}
+
+	/**
+	 * redraw(): Replace the status line with the current counters
+	 */
+	private void redraw() {
+		Output.printColor(Ansi.Color.WHITE, "\r" + Ansi.ansi().eraseLine().toString() + queryStatus());
+	}
+
+	/**
+	 * queryStatus(): Build the status line from the counters. The current path is trimmed from the front
+	 * to fit the line width
+	 * 
+	 * @return
+	 */
+	String queryStatus() {
+		long elapsedMS = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+		long files = filesCounted.sum();
+		long bytes = bytesCounted.sum();
+
+		String status = String.format("%d:%02d  Dirs: %s/%s  Files: %s (%s/s)  Size: %s (%s/s)", elapsedMS / 60000, (elapsedMS / 1000) % 60,
+				df.format(dirsCompleted.sum()), df.format(dirsQueued.sum()), df.format(files), df.format(files * 1000 / elapsedMS),
+				Format.humanReadableBytes(bytes), Format.humanReadableBytes(bytes * 1000 / elapsedMS));
+
+		Path dir = currentPath;
+		int pathCol = lineWidth - status.length() - 3;
+		if (dir != null && pathCol > 4) {
+			String displayPath = dir.toString();
+			if (displayPath.length() > pathCol) {
+				displayPath = "..." + displayPath.substring(displayPath.length() - (pathCol - 3));
+			}
+			status = status + "  " + displayPath;
+		}
+
+		return (status);
+	}
+
+}
@@ -0,0 +1,193 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.text.DecimalFormat;
+
+import org.fross.library.Output;
+import org.fusesource.jansi.Ansi;
+
+/**
+ * Renderer draws the directory rows of a report. Each row is formatted, with its ANSI color codes,
+ * into one StringBuilder that's reused for the whole report, and the rows are written to standard
+ * out in large chunks instead of a print call for every column.
+ *
+ * The columns of a row share their colors, so they're written as a single colored run followed by the
+ * map. Whether a directory is a symbolic link comes from the scan instead of being checked again on
+ * the file system for every row.
+ *
+ * Anything printed with Output between rows must be preceded by flush() so it lands in order.
+ *
+ * @author michael.d.fross
+ */
+public class Renderer {
+	private static final int FLUSH_SIZE = 64 * 1024;
+	static final char MAP_FILLED_CHAR = 'o';
+	static final char MAP_EMPTY_CHAR = '-';
+
+	private final StringBuilder buffer = new StringBuilder(FLUSH_SIZE + 1024);
+	private final Ansi ansi = new Ansi(buffer);
+	private final DecimalFormat df = new DecimalFormat("#,###");
+	private final boolean color = Output.queryColorEnabled();
+	private final char sortBy;
+	private final long unitsPerSlot;
+	private final int displayNameCol;
+	private final int displaySizeCol;
+	private final int displayFilesCol;
+	private final int displayVisualMap;
+
+	/**
+	 * Constructor: Set what the map shows, its scale and the column widths
+	 * 
+	 * @param sortBy
+	 * @param unitsPerSlot
+	 * @param displayNameCol
+	 * @param displaySizeCol
+	 * @param displayFilesCol
+	 * @param displayVisualMap
+	 */
+	public Renderer(char sortBy, long unitsPerSlot, int displayNameCol, int displaySizeCol, int displayFilesCol, int displayVisualMap) {
+		this.sortBy = sortBy;
+		this.unitsPerSlot = unitsPerSlot;
+		this.displayNameCol = displayNameCol;
+		this.displaySizeCol = displaySizeCol;
+		this.displayFilesCol = displayFilesCol;
+		this.displayVisualMap = displayVisualMap;
+	}
+
+	/**
+	 * row(): Add a directory line to the report with its size, file count and map. Returns the name as
+	 * it was displayed
+	 * 
+	 * @param key
+	 * @param size
+	 * @param files
+	 * @param link
+	 * @param colorCounter
+	 * @return
+	 */
+	public String row(String key, long size, long files, boolean link, int colorCounter) {
+		// Alternate the colors of each line. Symbolic links stand out with a different background
+		Ansi.Color fgColor = ((colorCounter % 2 == 0) ? Ansi.Color.WHITE : Ansi.Color.DEFAULT);
+		Ansi.Color bgColor = Ansi.Color.DEFAULT;
+		if (link == true) {
+			fgColor = Ansi.Color.WHITE;
+			bgColor = Ansi.Color.MAGENTA;
+		}
+
+		// Append [LINK] to the name for symbolic links. A name too long for the column is truncated
+		String displayName = (link == true) ? key + " [LINK]" : key;
+		if (key.length() > displayNameCol) {
+			displayName = key.substring(0, displayNameCol - 3) + "...";
+		}
+
+		// The name, size and files are one run of the same color
+		if (color == true) {
+			ansi.fg(fgColor).bg(bgColor);
+		}
+		padRight(displayName, displayNameCol);
+		padLeft(Main.signedBytes(size), displaySizeCol);
+		padLeft(df.format((double) files), displayFilesCol);
+		if (color == true) {
+			ansi.reset();
+		}
+
+		// The size or files map. A change since a snapshot can be negative so the map shows its size
+		long value = (sortBy == 'f') ? Math.abs(files) : Math.abs(size);
+		int numFilledSlots = (unitsPerSlot > 0) ? (int) Math.min(value / unitsPerSlot, displayVisualMap) : 0;
+
+		colored(Ansi.Color.WHITE);
+		ansi.a("    [");
+		colored(Ansi.Color.YELLOW);
+		for (int i = 0; i < numFilledSlots; i++) {
+			ansi.a(MAP_FILLED_CHAR);
+		}
+		colored(Ansi.Color.CYAN);
+		for (int i = numFilledSlots; i < displayVisualMap; i++) {
+			ansi.a(MAP_EMPTY_CHAR);
+		}
+		colored(Ansi.Color.WHITE);
+		ansi.a(']');
+		if (color == true) {
+			ansi.reset();
+		}
+		ansi.a(System.lineSeparator());
+
+		if (buffer.length() >= FLUSH_SIZE) {
+			flush();
+		}
+
+		return (displayName);
+	}
+
+	/**
+	 * flush(): Write the rows waiting in the buffer to standard out
+	 */
+	public void flush() {
+		System.out.append(buffer);
+		System.out.flush();
+		buffer.setLength(0);
+	}
+
+	/**
+	 * colored(): Switch the foreground color if color is enabled
+	 * 
+	 * @param fgColor
+	 */
+	private void colored(Ansi.Color fgColor) {
+		if (color == true) {
+			ansi.fg(fgColor);
+		}
+	}
+
+	/**
+	 * padRight(): Append the text followed by spaces to fill the width
+	 * 
+	 * @param text
+	 * @param width
+	 */
+	private void padRight(String text, int width) {
+		ansi.a(text);
+		for (int i = text.length(); i < width; i++) {
+			ansi.a(' ');
+		}
+	}
+
+	/**
+	 * padLeft(): Append spaces to fill the width followed by the text
+	 * 
+	 * @param text
+	 * @param width
+	 */
+	private void padLeft(String text, int width) {
+		for (int i = text.length(); i < width; i++) {
+			ansi.a(' ');
+		}
+		ansi.a(text);
+	}
+
+}
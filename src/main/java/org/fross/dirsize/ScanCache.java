@@ -0,0 +1,272 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fross.library.Output;
+import org.fusesource.jansi.Ansi;
+
+/**
+ * ScanCache stores the totals of the files directly inside each directory along with the directory's
+ * modification time, file key and subdirectory names. On a rescan, a directory whose modification
+ * time and file key are unchanged reuses those totals instead of being listed again. Only its
+ * subdirectories are checked, so an unchanged tree costs one attribute read per directory.
+ *
+ * A directory's modification time only changes when entries are added, removed or renamed. A file
+ * that grows in place is not seen until its directory changes or a full rescan is forced.
+ *
+ * The cache is kept under ~/.cache/dirsize (or $XDG_CACHE_HOME/dirsize) with one file per root
+ * directory.
+ *
+ * @author michael.d.fross
+ */
+public class ScanCache {
+	private static final int CACHE_MAGIC = 0x44534331;	// "DSC1"
+	private static final int CACHE_VERSION = 1;
+
+	private final Path cacheFile;
+	private final String signature;
+	private Map<String, Entry> previousScan = new HashMap<String, Entry>();
+	private final Map<String, Entry> currentScan = new ConcurrentHashMap<String, Entry>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Entry holds what was found directly inside a single directory
+	 */
+	static final class Entry {
+		final long modified;
+		final String key;
+		final long size;
+		final long files;
+		final String[] children;
+
+		Entry(long modified, String key, long size, long files, String[] children) {
+			this.modified = modified;
+			this.key = key;
+			this.size = size;
+			this.files = files;
+			this.children = children;
+		}
+	}
+
+	/**
+	 * Constructor: Determine the cache file for this root directory. The signature holds the scan
+	 * options that change totals so a cache written with different options isn't used
+	 * 
+	 * @param rootDir
+	 * @param signature
+	 */
+	public ScanCache(Path rootDir, String signature) {
+		this.signature = signature;
+
+		String cacheHome = System.getenv("XDG_CACHE_HOME");
+		if (cacheHome == null || cacheHome.isEmpty()) {
+			cacheHome = Paths.get(System.getProperty("user.home"), ".cache").toString();
+		}
+
+		this.cacheFile = Paths.get(cacheHome, "dirsize", hashName(rootDir.toString()) + ".cache");
+		Output.debugPrintln("Scan cache file: '" + cacheFile.toString() + "'");
+	}
+
+	/**
+	 * hashName(): Return a file name for the cache based on a hash of the root directory
+	 * 
+	 * @param name
+	 * @return
+	 */
+	private static String hashName(String name) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(name.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest) {
+				sb.append(String.format("%02x", b));
+			}
+			return (sb.toString());
+
+		} catch (NoSuchAlgorithmException ex) {
+			return (Integer.toHexString(name.hashCode()));
+		}
+	}
+
+	/**
+	 * keyOf(): Return the file key of a directory as a string. Not every file system provides one
+	 * 
+	 * @param attrs
+	 * @return
+	 */
+	private static String keyOf(BasicFileAttributes attrs) {
+		return (attrs.fileKey() == null ? "" : attrs.fileKey().toString());
+	}
+
+	/**
+	 * load(): Read the previous scan from disk. A missing or unreadable cache just means a full scan
+	 */
+	public void load() {
+		if (Files.isReadable(cacheFile) == false) {
+			Output.debugPrintln("No scan cache found.  Performing a full scan");
+			return;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION || in.readUTF().equals(signature) == false) {
+				Output.debugPrintln("Scan cache is from another version or other options.  Performing a full scan");
+				return;
+			}
+
+			int count = in.readInt();
+			Map<String, Entry> entries = new HashMap<String, Entry>(count * 2);
+			for (int i = 0; i < count; i++) {
+				String dir = in.readUTF();
+				long modified = in.readLong();
+				String key = in.readUTF();
+				long size = in.readLong();
+				long files = in.readLong();
+				String[] children = new String[in.readInt()];
+				for (int j = 0; j < children.length; j++) {
+					children[j] = in.readUTF();
+				}
+				entries.put(dir, new Entry(modified, key, size, files, children));
+			}
+
+			previousScan = entries;
+			Output.debugPrintln("Scan cache loaded with " + count + " directories");
+
+		} catch (IOException ex) {
+			Output.debugPrintln("Could not read scan cache: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * save(): Write the directories seen in this scan to disk. It's written to a temporary file first
+	 * so an interrupted save doesn't leave a broken cache behind
+	 */
+	public void save() {
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			Path tempFile = Files.createTempFile(cacheFile.getParent(), "dirsize", ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				out.writeUTF(signature);
+				out.writeInt(currentScan.size());
+
+				for (Map.Entry<String, Entry> i : currentScan.entrySet()) {
+					Entry e = i.getValue();
+					out.writeUTF(i.getKey());
+					out.writeLong(e.modified);
+					out.writeUTF(e.key);
+					out.writeLong(e.size);
+					out.writeLong(e.files);
+					out.writeInt(e.children.length);
+					for (String child : e.children) {
+						out.writeUTF(child);
+					}
+				}
+			}
+
+			Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Output.debugPrintln("Scan cache saved with " + currentScan.size() + " directories");
+
+		} catch (IOException ex) {
+			Output.printColorln(Ansi.Color.RED, "Error writing scan cache: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * lookup(): Return the cached entry for the directory if it hasn't changed since it was cached. The
+	 * entry is carried forward into the current scan
+	 * 
+	 * @param dir
+	 * @param attrs
+	 * @return
+	 */
+	Entry lookup(Path dir, BasicFileAttributes attrs) {
+		String dirName = dir.toString();
+		Entry cached = previousScan.get(dirName);
+
+		if (cached == null || cached.modified != attrs.lastModifiedTime().toMillis() || cached.key.equals(keyOf(attrs)) == false) {
+			misses.incrementAndGet();
+			return (null);
+		}
+
+		hits.incrementAndGet();
+		currentScan.put(dirName, cached);
+		return (cached);
+	}
+
+	/**
+	 * store(): Record the totals of the files directly inside a directory that was just listed
+	 * 
+	 * @param dir
+	 * @param attrs
+	 * @param size
+	 * @param files
+	 * @param children
+	 */
+	void store(Path dir, BasicFileAttributes attrs, long size, long files, List<String> children) {
+		currentScan.put(dir.toString(), new Entry(attrs.lastModifiedTime().toMillis(), keyOf(attrs), size, files, children.toArray(new String[0])));
+	}
+
+	/**
+	 * queryHits(): Return the number of directories that were reused from the cache
+	 * 
+	 * @return
+	 */
+	public long queryHits() {
+		return (hits.get());
+	}
+
+	/**
+	 * queryMisses(): Return the number of directories that had to be listed
+	 * 
+	 * @return
+	 */
+	public long queryMisses() {
+		return (misses.get());
+	}
+
+}
@@ -26,58 +26,757 @@
  ******************************************************************************/
 package org.fross.dirsize;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.fross.library.Output;
-import org.fusesource.jansi.Ansi;
 
 /**
  * This class contains methods for recursively scanning and reporting the number of files and sizes
  * of a sent subdirectory.
  *
- * It is sent a File Object of the directory to scan and returns a Long array Element [0] = Total
- * Size Element [1] = Total Files [2] = Error Count
+ * It is sent a Path of the directory to scan and returns a Long array Element [0] = Total Size
+ * Element [1] = Total Files. If file ages are being kept, the bytes and then the files of each age
+ * bucket follow starting at Element [AGE_TOTALS]
+ *
+ * One ScanDir is used for the whole run. It holds the symbolic link policy, the hard link set, the
+ * scan cache, the directory index, the largest files list, the progress counters, the metrics, the
+ * throttle and the path filter so every directory scanned (by any thread) shares them.
  *
  * @author michael.d.fross
  */
 public class ScanDir {
-	public long[] ScanDirectory(File DirToScan) {
-		// Accumulating totals. Element [0]=Total Size. Element [1]=Total Files.
-		long[] LocalTotals = { 0L, 0L };
+	// Symbolic link policies. They only apply to links that point to directories
+	public static final char LINKS_NEVER = 'n';	// Never follow
+	public static final char LINKS_ONCE = 'o';	// Follow each link target only the first time it's seen
+	public static final char LINKS_CYCLE = 'c';	// Follow unless the target is a parent of the link
+
+	// Where the age buckets start in the totals
+	static final int AGE_TOTALS = 2;
+
+	private char linkPolicy = LINKS_CYCLE;
+	private boolean hardLinksOnce = false;
+	private final boolean unixAttributes = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+	private final Set<Object> followedLinks = ConcurrentHashMap.newKeySet();
+	private final FileKeySet hardLinks = new FileKeySet();
+	private Ancestor rootAncestors = null;
+	private ScanCache cache = null;
+	private DirIndex index = null;
+	private TopFiles topFiles = null;
+	private Progress progress = null;
+	private Metrics metrics = null;
+	private Throttle throttle = null;
+	private PathFilter filter = null;
+	private Object rootDevice = null;
+	private AgeHistogram ages = null;
+
+	/**
+	 * Ancestor is a link in the chain of directory file keys from the current directory back to the
+	 * root. It's only built with the cycle link policy and is used to spot a link to a parent.
+	 */
+	static final class Ancestor {
+		final Object key;
+		final Ancestor parent;
+
+		Ancestor(Object key, Ancestor parent) {
+			this.key = key;
+			this.parent = parent;
+		}
+	}
+
+	/**
+	 * PendingDirs is the stack of directories waiting to be read by the serial scan. Entries are kept in
+	 * parallel arrays that grow as needed, so pushing a directory doesn't create an object for it
+	 */
+	private static final class PendingDirs {
+		private Path[] dirs = new Path[64];
+		private BasicFileAttributes[] attrs = new BasicFileAttributes[64];
+		private Ancestor[] ancestors = new Ancestor[64];
+		private int[] parentSlots = new int[64];
+		private boolean[] links = new boolean[64];
+		private int size = 0;
+
+		void push(Path dir, BasicFileAttributes dirAttrs, Ancestor dirAncestors, int parentSlot, boolean link) {
+			if (size == dirs.length) {
+				int newCapacity = size * 2;
+				dirs = Arrays.copyOf(dirs, newCapacity);
+				attrs = Arrays.copyOf(attrs, newCapacity);
+				ancestors = Arrays.copyOf(ancestors, newCapacity);
+				parentSlots = Arrays.copyOf(parentSlots, newCapacity);
+				links = Arrays.copyOf(links, newCapacity);
+			}
+			dirs[size] = dir;
+			attrs[size] = dirAttrs;
+			ancestors[size] = dirAncestors;
+			parentSlots[size] = parentSlot;
+			links[size] = link;
+			size++;
+		}
+
+		// Remove the top entry. Its values stay readable at the returned position until the next push
+		int pop() {
+			size--;
+			return (size);
+		}
+
+		// Drop the references held by a popped entry once it has been read
+		void clear(int i) {
+			dirs[i] = null;
+			attrs[i] = null;
+			ancestors[i] = null;
+		}
+
+		boolean isEmpty() {
+			return (size == 0);
+		}
+	}
+
+	/**
+	 * setLinkPolicy(): Set how symbolic links to directories are handled
+	 * 
+	 * @param policy
+	 */
+	public void setLinkPolicy(char policy) {
+		this.linkPolicy = policy;
+	}
+
+	/**
+	 * setHardLinksOnce(): If true, a file with several hard links is only counted the first time
+	 * 
+	 * @param flag
+	 */
+	public void setHardLinksOnce(boolean flag) {
+		this.hardLinksOnce = flag;
+
+		if (flag == true && unixAttributes == false) {
+			Output.debugPrintln("Hard link detection is not supported on this file system");
+		}
+	}
+
+	/**
+	 * setCache(): Reuse the totals of unchanged directories from the provided cache
+	 * 
+	 * @param cache
+	 */
+	public void setCache(ScanCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * setIndex(): Keep the totals of every directory scanned in the provided index
+	 * 
+	 * @param index
+	 */
+	public void setIndex(DirIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * setTopFiles(): Offer every file counted to the provided largest files list
+	 * 
+	 * @param topFiles
+	 */
+	public void setTopFiles(TopFiles topFiles) {
+		this.topFiles = topFiles;
+	}
+
+	/**
+	 * setProgress(): Report every directory scanned to the provided progress counters
+	 * 
+	 * @param progress
+	 */
+	public void setProgress(Progress progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * setMetrics(): Count directory reads and attribute reads in the provided metrics
+	 * 
+	 * @param metrics
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * setThrottle(): Limit the directory reads per second and in flight with the provided throttle
+	 * 
+	 * @param throttle
+	 */
+	public void setThrottle(Throttle throttle) {
+		this.throttle = throttle;
+	}
+
+	/**
+	 * setFilter(): Skip entries matching the provided exclude patterns and only count files matching its
+	 * include patterns
+	 * 
+	 * @param filter
+	 */
+	public void setFilter(PathFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * setAges(): Sort the bytes and files of each directory into the age buckets of the provided
+	 * histogram. The age comes from the attributes already read so it costs no I/O
+	 * 
+	 * @param ages
+	 */
+	public void setAges(AgeHistogram ages) {
+		this.ages = ages;
+	}
+
+	/**
+	 * totalsLength(): Return the length of the totals arrays, which is longer if ages are being kept
+	 * 
+	 * @return
+	 */
+	int totalsLength() {
+		return ((ages == null) ? AGE_TOTALS : AGE_TOTALS + 2 * AgeHistogram.BUCKETS);
+	}
+
+	/**
+	 * addTotals(): Add each element of the subdirectory totals to the totals
+	 * 
+	 * @param totals
+	 * @param subTotals
+	 */
+	static void addTotals(long[] totals, long[] subTotals) {
+		for (int i = 0; i < subTotals.length; i++) {
+			totals[i] += subTotals[i];
+		}
+	}
+
+	/**
+	 * setOneFileSystem(): Stay on the file system holding the root directory. Directories on any other
+	 * device (mounted shares, tmpfs, /proc) are not scanned
+	 * 
+	 * @param rootDir
+	 * @throws IOException
+	 */
+	public void setOneFileSystem(Path rootDir) throws IOException {
+		rootDevice = fileSystemOf(rootDir);
+	}
 
-		// Holds the results of a recursive call
-		long[] SubTotals;
+	/**
+	 * fileSystemOf(): Return what identifies the file system a directory is on. On Unix it's the device
+	 * id, elsewhere the FileStore
+	 * 
+	 * @param dir
+	 * @return
+	 * @throws IOException
+	 */
+	private Object fileSystemOf(Path dir) throws IOException {
+		if (metrics != null) {
+			metrics.stat();
+		}
+		if (unixAttributes == true) {
+			return (Files.getAttribute(dir, "unix:dev"));
+		}
+		return (Files.getFileStore(dir));
+	}
 
-		// List of files and directories of the provided directory
-		File[] DirContents;
+	/**
+	 * onRootFileSystem(): Returns false if staying on one file system and the directory is on another
+	 * 
+	 * @param dir
+	 * @return
+	 */
+	boolean onRootFileSystem(Path dir) {
+		if (rootDevice == null) {
+			return (true);
+		}
 
 		try {
-			DirContents = DirToScan.listFiles();
-
-			// Loop through directories and files, counting size and numbers
-			for (int i = 0; i < DirContents.length; i++) {
-				if (DirContents[i].isDirectory() == true) {
-					// Subdirectory Found - Scan
-					SubTotals = new ScanDir().ScanDirectory(DirContents[i]);
-					LocalTotals[0] += SubTotals[0];
-					LocalTotals[1] += SubTotals[1];
-				} else {
-					// Add local files to Sizes and File Counts
-					LocalTotals[0] += DirContents[i].length();
-					LocalTotals[1]++;
-				}
+			if (rootDevice.equals(fileSystemOf(dir)) == true) {
+				return (true);
+			}
+			Output.debugPrintln("Mount point skipped: '" + dir.toString() + "'");
+		} catch (IOException ex) {
+			Output.debugPrintln("SCAN ERROR: '" + dir.toString() + "'");
+			Main.scanErrors.add(dir, ex);
+		}
+		return (false);
+	}
+
+	/**
+	 * excluded(): Returns true if the entry matches an exclude pattern. It's checked before the entry's
+	 * attributes are read so an excluded directory costs nothing
+	 * 
+	 * @param entry
+	 * @return
+	 */
+	boolean excluded(Path entry) {
+		return (filter != null && filter.excluded(entry) == true);
+	}
+
+	/**
+	 * memberScanned(): Record the time a root member took to scan if metrics are being kept
+	 * 
+	 * @param dir
+	 * @param startNanos
+	 */
+	void memberScanned(Path dir, long startNanos) {
+		if (metrics != null) {
+			metrics.member(dir.getFileName().toString(), System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * indexSubDir(): Add a subdirectory to the directory index and return its slot, or -1 if no index is
+	 * being kept. Whether it's a symbolic link comes from the attributes read when it was listed
+	 * 
+	 * @param parentSlot
+	 * @param subDir
+	 * @param link
+	 * @return
+	 */
+	int indexSubDir(int parentSlot, Path subDir, boolean link) {
+		if (index == null) {
+			return (-1);
+		}
+		return (index.add(parentSlot, subDir.getFileName().toString(), link));
+	}
+
+	/**
+	 * setRootDirectory(): Record the root directory so a link back to it is seen as a cycle
+	 * 
+	 * @param rootDir
+	 */
+	public void setRootDirectory(Path rootDir) {
+		try {
+			rootAncestors = descend(null, Files.readAttributes(rootDir, BasicFileAttributes.class));
+		} catch (IOException ex) {
+			rootAncestors = null;
+		}
+	}
+
+	/**
+	 * descend(): Return the ancestor chain for a directory. Only built when it will be checked
+	 * 
+	 * @param parent
+	 * @param dirAttrs
+	 * @return
+	 */
+	Ancestor descend(Ancestor parent, BasicFileAttributes dirAttrs) {
+		if (linkPolicy != LINKS_CYCLE) {
+			return (null);
+		}
+		return (new Ancestor(dirAttrs.fileKey(), parent));
+	}
+
+	/**
+	 * descendFromRoot(): Return the ancestor chain for a member of the root directory
+	 * 
+	 * @param dirAttrs
+	 * @return
+	 */
+	Ancestor descendFromRoot(BasicFileAttributes dirAttrs) {
+		return (descend(rootAncestors, dirAttrs));
+	}
+
+	/**
+	 * readAttributes(): Read the attributes of a member of the root directory. isLink[0] is set to
+	 * whether the member itself is a symbolic link so the report doesn't have to check it again
+	 * 
+	 * @param entry
+	 * @param isLink
+	 * @return
+	 * @throws IOException
+	 */
+	protected BasicFileAttributes readAttributes(Path entry, boolean[] isLink) throws IOException {
+		return (readAttributes(entry, rootAncestors, isLink));
+	}
+
+	/**
+	 * readAttributes(): Read the type and size of an entry below the root directory
+	 * 
+	 * @param entry
+	 * @param ancestors
+	 * @return
+	 * @throws IOException
+	 */
+	BasicFileAttributes readAttributes(Path entry, Ancestor ancestors) throws IOException {
+		return (readAttributes(entry, ancestors, null));
+	}
+
+	/**
+	 * readAttributes(): Read the type and size of an entry with a single stat call. Only symbolic links
+	 * need a second read to get to their target. A broken link, or a link the policy won't follow, keeps
+	 * the attributes of the link itself
+	 * 
+	 * @param entry
+	 * @param ancestors
+	 * @param isLink
+	 * @return
+	 * @throws IOException
+	 */
+	private BasicFileAttributes readAttributes(Path entry, Ancestor ancestors, boolean[] isLink) throws IOException {
+		if (metrics != null) {
+			metrics.stat();
+		}
+		BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		if (isLink != null) {
+			isLink[0] = attrs.isSymbolicLink();
+		}
+
+		if (attrs.isSymbolicLink() == false) {
+			return (attrs);
+		}
+
+		BasicFileAttributes target;
+		try {
+			if (metrics != null) {
+				metrics.stat();
+			}
+			target = Files.readAttributes(entry, BasicFileAttributes.class);
+		} catch (IOException ex) {
+			Output.debugPrintln("Broken symbolic link: '" + entry.toString() + "'");
+			return (attrs);
+		}
+
+		// Links to files are always counted with the size of their target
+		if (target.isDirectory() == false || followLink(entry, target.fileKey(), ancestors) == true) {
+			return (target);
+		}
+
+		return (attrs);
+	}
+
+	/**
+	 * followLink(): Determine if a symbolic link to a directory should be followed based on the policy
+	 * 
+	 * @param entry
+	 * @param targetKey
+	 * @param ancestors
+	 * @return
+	 */
+	private boolean followLink(Path entry, Object targetKey, Ancestor ancestors) {
+		// Without a file key there is no way to tell where the link leads
+		if (linkPolicy == LINKS_NEVER || targetKey == null) {
+			return (false);
+		}
+
+		if (linkPolicy == LINKS_ONCE) {
+			if (followedLinks.add(targetKey) == false) {
+				Output.debugPrintln("Link target already scanned: '" + entry.toString() + "'");
+				return (false);
+			}
+			return (true);
+		}
+
+		for (Ancestor a = ancestors; a != null; a = a.parent) {
+			if (targetKey.equals(a.key)) {
+				Output.debugPrintln("Symbolic link cycle skipped: '" + entry.toString() + "'");
+				return (false);
+			}
+		}
+
+		return (true);
+	}
+
+	/**
+	 * countFile(): Returns false if the file doesn't match an include pattern or is another hard link to
+	 * a file that was already counted
+	 * 
+	 * @param entry
+	 * @param attrs
+	 * @return
+	 */
+	protected boolean countFile(Path entry, BasicFileAttributes attrs) {
+		if (filter != null && filter.included(entry) == false) {
+			return (false);
+		}
+
+		if (hardLinksOnce == false || unixAttributes == false || attrs.isRegularFile() == false) {
+			return (true);
+		}
+
+		try {
+			if (metrics != null) {
+				metrics.stat();
+			}
+			Map<String, Object> unixAttrs = Files.readAttributes(entry, "unix:nlink,dev,ino");
+			if ((Integer) unixAttrs.get("nlink") < 2) {
+				return (true);
 			}
-		} catch (NullPointerException ex) {
-			Output.debugPrintln("SCAN ERROR: '" + DirToScan.getAbsolutePath() + "'");
-			Main.errorList.put(DirToScan.getAbsolutePath(), ex.getMessage());
+			return (hardLinks.add((Long) unixAttrs.get("dev"), (Long) unixAttrs.get("ino")));
+
+		} catch (IOException ex) {
+			return (true);
+		}
+	}
+
+	/**
+	 * fileSize(): Return the size of a file. A symbolic link that wasn't followed has nothing behind it
+	 * so it's zero
+	 * 
+	 * @param attrs
+	 * @return
+	 */
+	protected static long fileSize(BasicFileAttributes attrs) {
+		return (attrs.isSymbolicLink() == true ? 0L : attrs.size());
+	}
+
+	/**
+	 * ScanDirectory(): Total the sizes and number of files under the provided root member
+	 * 
+	 * @param dirToScan
+	 * @param dirAttrs
+	 * @return
+	 */
+	public long[] ScanDirectory(Path dirToScan, BasicFileAttributes dirAttrs) {
+		long startNanos = System.nanoTime();
+		long[] totals = ScanDirectory(dirToScan, dirAttrs, descendFromRoot(dirAttrs), 0, false);
+		memberScanned(dirToScan, startNanos);
+		return (totals);
+	}
+
+	/**
+	 * ScanDirectory(): Total the sizes and number of files under the provided directory. The tree is
+	 * walked with a stack of the directories waiting to be read instead of by recursion, so a deep tree
+	 * can't overflow the thread's stack. The lists and totals used to read each directory are reused
+	 * from one directory to the next.
+	 * 
+	 * Subdirectories are pushed in reverse so they're read in the same order a recursive walk would
+	 * read them, and each one takes its directory index slot as it's read. ScanDirTask also uses this
+	 * to read the subtrees below its fork depth
+	 * 
+	 * @param dirToScan
+	 * @param dirAttrs
+	 * @param ancestors
+	 * @param parentSlot
+	 * @param link
+	 * @return
+	 */
+	long[] ScanDirectory(Path dirToScan, BasicFileAttributes dirAttrs, Ancestor ancestors, int parentSlot, boolean link) {
+		List<Path> subDirs = new ArrayList<Path>();
+		List<BasicFileAttributes> subDirAttrs = new ArrayList<BasicFileAttributes>();
+		BitSet subDirLinks = new BitSet();
+		PendingDirs pending = new PendingDirs();
+
+		// Accumulating totals. Element [0]=Total Size. Element [1]=Total Files.
+		long[] totals = new long[totalsLength()];
+		long[] localTotals = new long[totals.length];
+
+		pending.push(dirToScan, dirAttrs, ancestors, parentSlot, link);
+		while (pending.isEmpty() == false) {
+			int top = pending.pop();
+			Path dir = pending.dirs[top];
+			Ancestor dirAncestors = pending.ancestors[top];
+			int dirSlot = indexSubDir(pending.parentSlots[top], dir, pending.links[top]);
+
+			scanContents(dir, pending.attrs[top], dirAncestors, dirSlot, subDirs, subDirAttrs, subDirLinks, localTotals);
+			pending.clear(top);
+			addTotals(totals, localTotals);
 
-		} catch (Exception Ex) {
-			Output.printColorln(Ansi.Color.RED, "ERROR Scanning " + DirToScan.toString() + "\n" + Ex.getMessage());
+			for (int i = subDirs.size() - 1; i >= 0; i--) {
+				pending.push(subDirs.get(i), subDirAttrs.get(i), descend(dirAncestors, subDirAttrs.get(i)), dirSlot, subDirLinks.get(i));
+			}
+			subDirs.clear();
+			subDirAttrs.clear();
+			subDirLinks.clear();
 		}
 
 		// Return back to the calling function an array with Size & File totals
-		return (LocalTotals);
+		return (totals);
+	}
+
+	/**
+	 * scanContents(): Total the files directly inside a directory and add its subdirectories to the
+	 * lists provided. If the directory hasn't changed since it was cached, the cached totals are used
+	 * and only the subdirectories are read.
+	 * 
+	 * Returns a Long array with Element [0] = Size and Element [1] = Files of this directory alone. They
+	 * are also saved in the directory index slot if an index is being kept
+	 * 
+	 * @param dirToScan
+	 * @param dirAttrs
+	 * @param ancestors
+	 * @param dirSlot
+	 * @param subDirs
+	 * @param subDirAttrs
+	 * @param subDirLinks
+	 * @return
+	 */
+	long[] scanContents(Path dirToScan, BasicFileAttributes dirAttrs, Ancestor ancestors, int dirSlot, List<Path> subDirs, List<BasicFileAttributes> subDirAttrs,
+			BitSet subDirLinks) {
+		long[] localTotals = new long[totalsLength()];
+		scanContents(dirToScan, dirAttrs, ancestors, dirSlot, subDirs, subDirAttrs, subDirLinks, localTotals);
+		return (localTotals);
+	}
+
+	/**
+	 * scanContents(): Total the files directly inside a directory into the array provided, replacing what
+	 * it held, and add its subdirectories to the lists provided
+	 * 
+	 * @param dirToScan
+	 * @param dirAttrs
+	 * @param ancestors
+	 * @param dirSlot
+	 * @param subDirs
+	 * @param subDirAttrs
+	 * @param subDirLinks
+	 * @param localTotals
+	 */
+	void scanContents(Path dirToScan, BasicFileAttributes dirAttrs, Ancestor ancestors, int dirSlot, List<Path> subDirs, List<BasicFileAttributes> subDirAttrs,
+			BitSet subDirLinks, long[] localTotals) {
+		if (progress != null) {
+			progress.started(dirToScan);
+		}
+
+		listContents(dirToScan, dirAttrs, ancestors, subDirs, subDirAttrs, subDirLinks, localTotals);
+
+		if (index != null && dirSlot >= 0) {
+			index.setLocal(dirSlot, localTotals[0], localTotals[1], dirAttrs.lastModifiedTime().toMillis());
+		}
+
+		if (progress != null) {
+			progress.completed(localTotals[0], localTotals[1], subDirs.size());
+		}
+	}
+
+	/**
+	 * listContents(): Read the directory, or its cache entry, and total the files directly inside it
+	 * 
+	 * @param dirToScan
+	 * @param dirAttrs
+	 * @param ancestors
+	 * @param subDirs
+	 * @param subDirAttrs
+	 * @param subDirLinks
+	 * @param localTotals
+	 */
+	private void listContents(Path dirToScan, BasicFileAttributes dirAttrs, Ancestor ancestors, List<Path> subDirs, List<BasicFileAttributes> subDirAttrs,
+			BitSet subDirLinks, long[] localTotals) {
+		Arrays.fill(localTotals, 0L);
+		boolean[] isLink = new boolean[1];
+
+		// Names of the subdirectories found, saved with this directory in the cache
+		List<String> children = (cache == null) ? null : new ArrayList<String>();
+
+		// Unchanged since the last scan. Use the cached totals and just check the subdirectories
+		ScanCache.Entry cached = (cache == null) ? null : cache.lookup(dirToScan, dirAttrs);
+		if (cached != null) {
+			for (String child : cached.children) {
+				addSubDir(dirToScan.resolve(child), ancestors, subDirs, subDirAttrs, subDirLinks, isLink);
+			}
+			localTotals[0] = cached.size;
+			localTotals[1] = cached.files;
+			return;
+		}
+
+		// Stream the directory contents. Type and size come from one attribute read per entry. A
+		// throttled read holds its place until the listing is complete
+		if (metrics != null) {
+			metrics.listed();
+		}
+		if (throttle != null) {
+			throttle.acquire();
+		}
+		try (DirectoryStream<Path> dirContents = Files.newDirectoryStream(dirToScan)) {
+			for (Path entry : dirContents) {
+				if (excluded(entry) == true) {
+					continue;
+				}
+
+				BasicFileAttributes attrs;
+				try {
+					attrs = readAttributes(entry, ancestors, isLink);
+				} catch (IOException ex) {
+					// The entry vanished or can't be read between the listing and the stat
+					Output.debugPrintln("SCAN ERROR: '" + entry.toString() + "'");
+					Main.scanErrors.add(entry, ex);
+					continue;
+				}
+
+				if (attrs.isDirectory() == true) {
+					// Subdirectory Found - Queue it for the caller to scan unless it's another file system
+					if (onRootFileSystem(entry) == false) {
+						continue;
+					}
+					if (subDirLinks != null) {
+						subDirLinks.set(subDirs.size(), isLink[0]);
+					}
+					subDirs.add(entry);
+					subDirAttrs.add(attrs);
+					if (children != null) {
+						children.add(entry.getFileName().toString());
+					}
+				} else if (countFile(entry, attrs) == true) {
+					// Add local files to Sizes and File Counts
+					long entrySize = fileSize(attrs);
+					localTotals[0] += entrySize;
+					localTotals[1]++;
+					if (ages != null) {
+						int bucket = ages.bucketOf(attrs);
+						localTotals[AGE_TOTALS + bucket] += entrySize;
+						localTotals[AGE_TOTALS + AgeHistogram.BUCKETS + bucket]++;
+					}
+
+					if (topFiles != null) {
+						topFiles.offer(entry, entrySize);
+					}
+				}
+			}
+
+			if (cache != null) {
+				cache.store(dirToScan, dirAttrs, localTotals[0], localTotals[1], children);
+			}
 
+		} catch (IOException | DirectoryIteratorException ex) {
+			Output.debugPrintln("SCAN ERROR: '" + dirToScan.toString() + "'");
+			Main.scanErrors.add(dirToScan, ex);
+
+		} catch (SecurityException ex) {
+			Output.debugPrintln("SCAN ERROR: '" + dirToScan.toString() + "'");
+			Main.scanErrors.add(dirToScan, ex);
+
+		} finally {
+			if (throttle != null) {
+				throttle.release();
+			}
+		}
+	}
+
+	/**
+	 * addSubDir(): Read a cached subdirectory's attributes and queue it if it's still a directory
+	 * 
+	 * @param subDir
+	 * @param ancestors
+	 * @param subDirs
+	 * @param subDirAttrs
+	 * @param subDirLinks
+	 * @param isLink
+	 */
+	private void addSubDir(Path subDir, Ancestor ancestors, List<Path> subDirs, List<BasicFileAttributes> subDirAttrs, BitSet subDirLinks, boolean[] isLink) {
+		try {
+			BasicFileAttributes attrs = readAttributes(subDir, ancestors, isLink);
+			if (attrs.isDirectory() == true && onRootFileSystem(subDir) == true) {
+				if (subDirLinks != null) {
+					subDirLinks.set(subDirs.size(), isLink[0]);
+				}
+				subDirs.add(subDir);
+				subDirAttrs.add(attrs);
+			}
+		} catch (IOException ex) {
+			Output.debugPrintln("SCAN ERROR: '" + subDir.toString() + "'");
+			Main.scanErrors.add(subDir, ex);
+		}
 	}
 
-}
\ No newline at end of file
+}
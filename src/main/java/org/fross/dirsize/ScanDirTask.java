@@ -0,0 +1,138 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ScanDirTask is the parallel version of ScanDir. Each subdirectory becomes its own task in a
+ * work-stealing ForkJoinPool so idle threads can pick up directories queued by busy ones.
+ *
+ * Every level of tasks adds to the stack of the thread that joins them, so tasks are only forked
+ * down to FORK_DEPTH levels below the root member. Deeper subtrees are read by the task that finds
+ * them using ScanDir's stack of pending directories, which keeps a very deep tree from overflowing
+ * the thread's stack.
+ *
+ * The result is the same Long array ScanDir returns: Element [0] = Total Size, Element [1] = Total
+ * Files, followed by the age buckets if they're kept. Reading each directory is done by the shared
+ * ScanDir so the link policy, hard link set and scan cache all apply.
+ *
+ * @author michael.d.fross
+ */
+public class ScanDirTask extends RecursiveTask<long[]> {
+	private static final long serialVersionUID = 1L;
+	private static final int FORK_DEPTH = 32;
+	private final ScanDir scanner;
+	private final Path dirToScan;
+	private final BasicFileAttributes dirAttrs;
+	private final ScanDir.Ancestor ancestors;
+	private final int dirSlot;
+	private final int depth;
+
+	/**
+	 * Constructor: Set the root member directory this task will scan
+	 *
+	 * @param scanner
+	 * @param dir
+	 * @param dirAttrs
+	 */
+	public ScanDirTask(ScanDir scanner, Path dir, BasicFileAttributes dirAttrs) {
+		this(scanner, dir, dirAttrs, scanner.descendFromRoot(dirAttrs), scanner.indexSubDir(0, dir, false), 0);
+	}
+
+	/**
+	 * Constructor: Set a subdirectory this task will scan along with its parents
+	 *
+	 * @param scanner
+	 * @param dir
+	 * @param dirAttrs
+	 * @param ancestors
+	 * @param dirSlot
+	 * @param depth
+	 */
+	private ScanDirTask(ScanDir scanner, Path dir, BasicFileAttributes dirAttrs, ScanDir.Ancestor ancestors, int dirSlot, int depth) {
+		this.scanner = scanner;
+		this.dirToScan = dir;
+		this.dirAttrs = dirAttrs;
+		this.ancestors = ancestors;
+		this.dirSlot = dirSlot;
+		this.depth = depth;
+	}
+
+	/**
+	 * compute(): Total the files in this directory and fork a new task for each subdirectory found. At
+	 * FORK_DEPTH the subdirectories are read here without forking
+	 *
+	 * @return
+	 */
+	@Override
+	protected long[] compute() {
+		long startNanos = (depth == 0) ? System.nanoTime() : 0L;
+		List<Path> subDirs = new ArrayList<Path>();
+		List<BasicFileAttributes> subDirAttrs = new ArrayList<BasicFileAttributes>();
+		BitSet subDirLinks = new BitSet();
+
+		// Accumulating totals. Element [0]=Total Size. Element [1]=Total Files.
+		long[] localTotals = scanner.scanContents(dirToScan, dirAttrs, ancestors, dirSlot, subDirs, subDirAttrs, subDirLinks);
+
+		// Deep enough that another level of tasks could run the stack out, so read the subtrees here
+		if (depth >= FORK_DEPTH) {
+			for (int i = 0; i < subDirs.size(); i++) {
+				ScanDir.addTotals(localTotals, scanner.ScanDirectory(subDirs.get(i), subDirAttrs.get(i), scanner.descend(ancestors, subDirAttrs.get(i)), dirSlot,
+						subDirLinks.get(i)));
+			}
+			return (localTotals);
+		}
+
+		// Fork a task for each subdirectory found
+		List<ScanDirTask> subTasks = new ArrayList<ScanDirTask>(subDirs.size());
+		for (int i = 0; i < subDirs.size(); i++) {
+			ScanDirTask task = new ScanDirTask(scanner, subDirs.get(i), subDirAttrs.get(i), scanner.descend(ancestors, subDirAttrs.get(i)),
+					scanner.indexSubDir(dirSlot, subDirs.get(i), subDirLinks.get(i)), depth + 1);
+			task.fork();
+			subTasks.add(task);
+		}
+
+		// Wait for the subdirectory tasks and add their totals to ours. join() lets this thread help
+		// with queued work while it waits
+		for (ScanDirTask task : subTasks) {
+			ScanDir.addTotals(localTotals, task.join());
+		}
+
+		if (depth == 0) {
+			scanner.memberScanned(dirToScan, startNanos);
+		}
+
+		return (localTotals);
+	}
+
+}
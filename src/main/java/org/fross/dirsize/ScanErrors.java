@@ -0,0 +1,177 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ScanErrors collects the errors found while scanning, grouped by their cause. Every error is counted
+ * but only the first few of each cause are kept with their path and message, so a tree with millions
+ * of unreadable entries doesn't fill memory with them.
+ *
+ * Any scanning thread can add an error. The counts are LongAdders and each cause's samples are claimed
+ * by slot number, so adding never waits on a lock.
+ *
+ * @author michael.d.fross
+ */
+public class ScanErrors {
+	public static final int MAX_SAMPLES = 10;
+
+	/**
+	 * Cause is what went wrong, with the heading it's displayed under
+	 */
+	public enum Cause {
+		PERMISSION("Permission Denied"), VANISHED("No Longer Exists"), LOOP("File System Loop"), IO("I/O Error"), OTHER("Other Error");
+
+		private final String label;
+
+		Cause(String label) {
+			this.label = label;
+		}
+
+		public String queryLabel() {
+			return (label);
+		}
+	}
+
+	private final LongAdder[] counts = new LongAdder[Cause.values().length];
+	private final AtomicReferenceArray<String> samples = new AtomicReferenceArray<String>(Cause.values().length * MAX_SAMPLES);
+
+	/**
+	 * Constructor: Create a counter for each cause
+	 */
+	public ScanErrors() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * add(): Count an error for the path and keep it if there's still room in the sample of its cause
+	 * 
+	 * @param path
+	 * @param ex
+	 */
+	public void add(Object path, Exception ex) {
+		Cause cause = causeOf(ex);
+		counts[cause.ordinal()].increment();
+
+		// The sample is filled in order so once it's full nothing more is built
+		int first = cause.ordinal() * MAX_SAMPLES;
+		if (samples.get(first + MAX_SAMPLES - 1) != null) {
+			return;
+		}
+
+		String reason = reasonOf(ex);
+		String sample = (reason == null) ? path.toString() : path.toString() + "  (" + reason + ")";
+		for (int i = first; i < first + MAX_SAMPLES; i++) {
+			if (samples.get(i) == null && samples.compareAndSet(i, null, sample) == true) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * causeOf(): Return the cause of an exception. A failure while iterating a directory is wrapped so
+	 * the real exception is checked
+	 * 
+	 * @param ex
+	 * @return
+	 */
+	static Cause causeOf(Exception ex) {
+		Throwable t = (ex instanceof DirectoryIteratorException) ? ex.getCause() : ex;
+
+		if (t instanceof AccessDeniedException || t instanceof SecurityException) {
+			return (Cause.PERMISSION);
+		} else if (t instanceof NoSuchFileException) {
+			return (Cause.VANISHED);
+		} else if (t instanceof FileSystemLoopException) {
+			return (Cause.LOOP);
+		} else if (t instanceof IOException) {
+			return (Cause.IO);
+		}
+		return (Cause.OTHER);
+	}
+
+	/**
+	 * reasonOf(): Return the reason for an error, or null if there's nothing more than the cause. Path
+	 * based exceptions only hold the path as their message, so the reason they give is used instead
+	 * 
+	 * @param ex
+	 * @return
+	 */
+	private static String reasonOf(Exception ex) {
+		Throwable t = (ex instanceof DirectoryIteratorException) ? ex.getCause() : ex;
+
+		if (t instanceof FileSystemException) {
+			return (((FileSystemException) t).getReason());
+		}
+		return (t.getMessage());
+	}
+
+	/**
+	 * queryCount(): Return the number of errors with this cause
+	 * 
+	 * @param cause
+	 * @return
+	 */
+	public long queryCount(Cause cause) {
+		return (counts[cause.ordinal()].sum());
+	}
+
+	/**
+	 * queryTotal(): Return the number of errors of every cause
+	 * 
+	 * @return
+	 */
+	public long queryTotal() {
+		long total = 0;
+		for (LongAdder count : counts) {
+			total += count.sum();
+		}
+		return (total);
+	}
+
+	/**
+	 * querySample(): Return an error kept for this cause, or null if there isn't one in that position
+	 * 
+	 * @param cause
+	 * @param i
+	 * @return
+	 */
+	public String querySample(Cause cause, int i) {
+		return (samples.get(cause.ordinal() * MAX_SAMPLES + i));
+	}
+
+}
@@ -26,161 +26,354 @@
  ******************************************************************************/
 package org.fross.dirsize;
 
-import java.io.File;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
+/**
+ * SizeMap holds the scan results for each member of the root directory. The names, full paths, sizes
+ * and file counts are kept in parallel arrays, one slot per entry, so sorting and finding the range
+ * never boxes a value or touches the file system.
+ *
+ * Sorting works on an array of slot numbers. The lower case names used for directory name sorting are
+ * built once per entry instead of on every comparison.
+ *
+ * @author michael.d.fross
+ */
 public class SizeMap {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int count = 0;
+	private String[] names = new String[INITIAL_CAPACITY];
+	private String[] fullPaths = new String[INITIAL_CAPACITY];
+	private long[] sizes = new long[INITIAL_CAPACITY];
+	private long[] files = new long[INITIAL_CAPACITY];
+	private boolean[] links = new boolean[INITIAL_CAPACITY];
+	private String[] sortKeys = null;
+
+	/**
+	 * SlotComparator compares two slots without boxing them
+	 */
+	private interface SlotComparator {
+		int compare(int a, int b);
+	}
 
 	/**
-	 * queryMax(): Returns the largest size found in the provided hashmap
+	 * add(): Add an entry and return its slot
 	 * 
-	 * @param inputMap
-	 * @param members
+	 * @param name
+	 * @param fullPath
+	 * @param size
+	 * @param numFiles
 	 * @return
 	 */
-	public static long queryMax(HashMap<String, Long> inputMap, File[] members) {
-		Long sizeMapMax = Long.MIN_VALUE;
+	public int add(String name, String fullPath, long size, long numFiles) {
+		if (count == names.length) {
+			int newCapacity = names.length * 2;
+			names = Arrays.copyOf(names, newCapacity);
+			fullPaths = Arrays.copyOf(fullPaths, newCapacity);
+			sizes = Arrays.copyOf(sizes, newCapacity);
+			files = Arrays.copyOf(files, newCapacity);
+			links = Arrays.copyOf(links, newCapacity);
+		}
 
-		for (int i = 0; i < members.length; i++) {
-			// Ensure we only look at directories
-			if (members[i].isDirectory()) {
-				String key = members[i].getName();
+		names[count] = name;
+		fullPaths[count] = fullPath;
+		sizes[count] = size;
+		files[count] = numFiles;
+		links[count] = false;
+		sortKeys = null;
+		return (count++);
+	}
 
-				if (inputMap.get(key) > sizeMapMax)
-					sizeMapMax = inputMap.get(key);
-			}
-		}
+	/**
+	 * addTotals(): Add to the size and file count of an existing slot
+	 * 
+	 * @param slot
+	 * @param size
+	 * @param numFiles
+	 */
+	public void addTotals(int slot, long size, long numFiles) {
+		sizes[slot] += size;
+		files[slot] += numFiles;
+	}
 
-		return (sizeMapMax);
+	/**
+	 * setLink(): Mark whether the entry in the slot is a symbolic link. This comes from the attributes
+	 * read during the scan
+	 * 
+	 * @param slot
+	 * @param link
+	 */
+	public void setLink(int slot, boolean link) {
+		links[slot] = link;
 	}
 
 	/**
-	 * queryMin(): Returns the smallest size found in the provided hashmap
+	 * queryCount(): Return the number of entries
 	 * 
-	 * @param inputMap
-	 * @param members
 	 * @return
 	 */
-	public static long queryMin(HashMap<String, Long> inputMap, File[] members) {
-		long sizeMapMin = Long.MAX_VALUE;  // Largest value a long can have
+	public int queryCount() {
+		return (count);
+	}
 
-		for (int i = 0; i < members.length; i++) {
-			// Ensure we only look at directories
-			if (members[i].isDirectory()) {
-				String key = members[i].getName();
+	/**
+	 * queryName(): Return the name of the entry in the slot
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public String queryName(int slot) {
+		return (names[slot]);
+	}
 
-				if (inputMap.get(key) < sizeMapMin)
-					sizeMapMin = inputMap.get(key);
-			}
-		}
+	/**
+	 * queryFullPath(): Return the full path of the entry in the slot
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public String queryFullPath(int slot) {
+		return (fullPaths[slot]);
+	}
 
-		return (sizeMapMin);
+	/**
+	 * querySize(): Return the size of the entry in the slot
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public long querySize(int slot) {
+		return (sizes[slot]);
 	}
 
 	/**
-	 * sortByKeyAscending(): Return a HashMap with case insensitive key sorting
+	 * queryFiles(): Return the file count of the entry in the slot
 	 * 
-	 * @param hm
+	 * @param slot
 	 * @return
 	 */
-	public static HashMap<String, Long> sortByKeyAscendingCI(HashMap<String, Long> hm) {
-		// Create a list from elements of HashMap
-		List<Map.Entry<String, Long>> list = new LinkedList<Map.Entry<String, Long>>(hm.entrySet());
+	public long queryFiles(int slot) {
+		return (files[slot]);
+	}
 
-		// Sort the list
-		Collections.sort(list, new Comparator<Map.Entry<String, Long>>() {
-			public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
-				return (o1.getKey().toLowerCase()).compareTo(o2.getKey().toLowerCase());
-			}
-		});
+	/**
+	 * queryLink(): Return true if the entry in the slot is a symbolic link
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public boolean queryLink(int slot) {
+		return (links[slot]);
+	}
 
-		// put data from sorted list to hash map
-		HashMap<String, Long> temp = new LinkedHashMap<String, Long>();
-		for (Map.Entry<String, Long> aa : list) {
-			temp.put(aa.getKey(), aa.getValue());
+	/**
+	 * queryOthers(): Return the totals of every entry not in the slots provided. Element [0] = Size,
+	 * Element [1] = Files and Element [2] = Number of entries
+	 * 
+	 * @param shownSlots
+	 * @return
+	 */
+	public long[] queryOthers(int[] shownSlots) {
+		long[] others = { 0L, 0L, count - shownSlots.length };
+		for (int slot = 0; slot < count; slot++) {
+			others[0] += sizes[slot];
+			others[1] += files[slot];
+		}
+		for (int slot : shownSlots) {
+			others[0] -= sizes[slot];
+			others[1] -= files[slot];
 		}
-		return temp;
+		return (others);
 	}
 
 	/**
-	 * sortByKeyDescending(): Return a HashMap with case insensitive key sorting
+	 * queryRange(): Returns the smallest and largest values in a single pass as a Long array with
+	 * Element [0] = Minimum and Element [1] = Maximum. The excluded slot (the root directory files) is
+	 * skipped. If there is nothing to compare, both are zero
 	 * 
-	 * @param hm
+	 * @param byFiles
+	 * @param excludeSlot
 	 * @return
 	 */
-	public static HashMap<String, Long> sortByKeyDescendingCI(HashMap<String, Long> hm) {
-		// Create a list from elements of HashMap
-		List<Map.Entry<String, Long>> list = new LinkedList<Map.Entry<String, Long>>(hm.entrySet());
+	public long[] queryRange(boolean byFiles, int excludeSlot) {
+		long[] values = (byFiles == true) ? files : sizes;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
 
-		// Sort the list
-		Collections.sort(list, new Comparator<Map.Entry<String, Long>>() {
-			public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
-				return (o1.getKey().toLowerCase()).compareTo(o2.getKey().toLowerCase());
+		for (int i = 0; i < count; i++) {
+			if (i != excludeSlot) {
+				if (values[i] < min)
+					min = values[i];
+				if (values[i] > max)
+					max = values[i];
 			}
-		}.reversed());
+		}
 
-		// put data from sorted list to hash map
-		HashMap<String, Long> temp = new LinkedHashMap<String, Long>();
-		for (Map.Entry<String, Long> aa : list) {
-			temp.put(aa.getKey(), aa.getValue());
+		if (min > max) {
+			return (new long[] { 0L, 0L });
 		}
-		return temp;
+		return (new long[] { min, max });
 	}
 
 	/**
-	 * sortByValueAscending(): Return a Map sorted by values
+	 * sort(): Return the slots in sorted order. sortBy is 's' for size, 'f' for files or 'd' for
+	 * directory name (case insensitive). Sizes and files are descending and names ascending unless
+	 * reversed
 	 * 
-	 * @param hm
+	 * @param sortBy
+	 * @param reverse
 	 * @return
 	 */
-	public static HashMap<String, Long> sortByValueAscending(HashMap<String, Long> hm) {
-		// Create a list from elements of HashMap
-		List<Map.Entry<String, Long>> list = new LinkedList<Map.Entry<String, Long>>(hm.entrySet());
+	public int[] sort(char sortBy, boolean reverse) {
+		int[] slots = new int[count];
+		for (int i = 0; i < count; i++) {
+			slots[i] = i;
+		}
+		mergeSort(slots, new int[count], 0, count, comparator(sortBy, reverse));
 
-		// Sort the list
-		Collections.sort(list, new Comparator<Map.Entry<String, Long>>() {
-			public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
-				return (o1.getValue()).compareTo(o2.getValue());
-			}
-		});
+		return (slots);
+	}
+
+	/**
+	 * top(): Return the first n slots of the sorted order without sorting every entry. A heap holds the
+	 * n best entries seen so far with the one that sorts last on top, so picking them is
+	 * O(count log n). Entries that tie keep the order sort() would give them
+	 * 
+	 * @param n
+	 * @param sortBy
+	 * @param reverse
+	 * @return
+	 */
+	public int[] top(int n, char sortBy, boolean reverse) {
+		SlotComparator comparator = comparator(sortBy, reverse);
+		int[] heap = new int[Math.max(Math.min(n, count), 0)];
+		if (heap.length == 0) {
+			return (heap);
+		}
+
+		// The slots are offered in order so a later slot that ties sorts after the earlier one
+		SlotComparator order = (a, b) -> {
+			int result = comparator.compare(a, b);
+			return ((result != 0) ? result : Integer.compare(a, b));
+		};
 
-		// put data from sorted list to hashmap
-		HashMap<String, Long> temp = new LinkedHashMap<String, Long>();
-		for (Map.Entry<String, Long> aa : list) {
-			temp.put(aa.getKey(), aa.getValue());
+		for (int slot = 0; slot < count; slot++) {
+			if (slot < heap.length) {
+				// Still filling the heap. Sift the new slot up
+				int i = slot;
+				while (i > 0 && order.compare(heap[(i - 1) / 2], slot) < 0) {
+					heap[i] = heap[(i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				heap[i] = slot;
+			} else if (order.compare(slot, heap[0]) < 0) {
+				// Sorts before the last one kept. Replace it and sift down
+				int i = 0;
+				while (true) {
+					int last = -1;
+					int l = 2 * i + 1;
+					int r = l + 1;
+					if (l < heap.length && order.compare(heap[l], slot) > 0)
+						last = l;
+					if (r < heap.length && order.compare(heap[r], slot) > 0 && (last < 0 || order.compare(heap[r], heap[l]) > 0))
+						last = r;
+					if (last < 0)
+						break;
+					heap[i] = heap[last];
+					i = last;
+				}
+				heap[i] = slot;
+			}
 		}
-		return temp;
+
+		// Only the n kept entries are sorted
+		Arrays.sort(heap);
+		mergeSort(heap, new int[heap.length], 0, heap.length, comparator);
+
+		return (heap);
 	}
 
 	/**
-	 * sortByValueDescending(): Return a Map sorted by values
+	 * comparator(): Return the comparator for the sort order requested
 	 * 
-	 * @param hm
+	 * @param sortBy
+	 * @param reverse
 	 * @return
 	 */
-	public static HashMap<String, Long> sortByValueDescending(HashMap<String, Long> hm) {
-		// Create a list from elements of HashMap
-		List<Map.Entry<String, Long>> list = new LinkedList<Map.Entry<String, Long>>(hm.entrySet());
+	private SlotComparator comparator(char sortBy, boolean reverse) {
+		SlotComparator comparator;
+
+		switch (sortBy) {
+		case 'f':
+			comparator = (a, b) -> Long.compare(files[b], files[a]);
+			break;
+
+		case 'd':
+			if (sortKeys == null) {
+				sortKeys = new String[count];
+				for (int i = 0; i < count; i++) {
+					sortKeys[i] = names[i].toLowerCase();
+				}
+			}
+			comparator = (a, b) -> sortKeys[a].compareTo(sortKeys[b]);
+			break;
+
+		default:
+			comparator = (a, b) -> Long.compare(sizes[b], sizes[a]);
+			break;
+		}
+
+		if (reverse == true) {
+			SlotComparator forward = comparator;
+			comparator = (a, b) -> forward.compare(b, a);
+		}
+
+		return (comparator);
+	}
 
-		// Sort the list
-		Collections.sort(list, new Comparator<Map.Entry<String, Long>>() {
-			public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
-				return (o1.getValue()).compareTo(o2.getValue());
+	/**
+	 * mergeSort(): Stable sort of the slots between from (inclusive) and to (exclusive)
+	 * 
+	 * @param slots
+	 * @param work
+	 * @param from
+	 * @param to
+	 * @param comparator
+	 */
+	private static void mergeSort(int[] slots, int[] work, int from, int to, SlotComparator comparator) {
+		// Insertion sort small ranges
+		if (to - from < 16) {
+			for (int i = from + 1; i < to; i++) {
+				int slot = slots[i];
+				int j = i - 1;
+				while (j >= from && comparator.compare(slots[j], slot) > 0) {
+					slots[j + 1] = slots[j];
+					j--;
+				}
+				slots[j + 1] = slot;
 			}
-		}.reversed());
+			return;
+		}
+
+		int mid = (from + to) >>> 1;
+		mergeSort(slots, work, from, mid, comparator);
+		mergeSort(slots, work, mid, to, comparator);
 
-		// put data from sorted list to hashmap
-		HashMap<String, Long> temp = new LinkedHashMap<String, Long>();
-		for (Map.Entry<String, Long> aa : list) {
-			temp.put(aa.getKey(), aa.getValue());
+		// Already in order
+		if (comparator.compare(slots[mid - 1], slots[mid]) <= 0) {
+			return;
+		}
+
+		System.arraycopy(slots, from, work, from, to - from);
+		int i = from;
+		int j = mid;
+		for (int k = from; k < to; k++) {
+			if (j >= to || (i < mid && comparator.compare(work[i], work[j]) <= 0)) {
+				slots[k] = work[i++];
+			} else {
+				slots[k] = work[j++];
+			}
 		}
-		return temp;
 	}
 
 	/**
@@ -190,28 +383,32 @@ public class SizeMap {
 	 */
 	public static void main(String[] args) {
 
-		HashMap<String, Long> hm = new HashMap<String, Long>();
+		SizeMap sm = new SizeMap();
 
-		// Add test data into the HashMap
-		hm.put("Math", 98L);
-		hm.put("Data Structure", 85L);
-		hm.put("Database", 91L);
-		hm.put("Java", 95L);
-		hm.put("Operating System", 79L);
-		hm.put("Networking", 80L);
+		// Add test data into the SizeMap
+		sm.add("Math", "", 98L, 1L);
+		sm.add("Data Structure", "", 85L, 2L);
+		sm.add("Database", "", 91L, 3L);
+		sm.add("Java", "", 95L, 4L);
+		sm.add("Operating System", "", 79L, 5L);
+		sm.add("Networking", "", 80L, 6L);
 
 		// Display Ascending Sort
 		System.out.println("Ascending:");
-		Map<String, Long> hm1 = sortByValueAscending(hm);
-		for (Map.Entry<String, Long> en : hm1.entrySet()) {
-			System.out.println("Key = " + en.getKey() + ", Value = " + en.getValue());
+		for (int slot : sm.sort('s', true)) {
+			System.out.println("Key = " + sm.queryName(slot) + ", Value = " + sm.querySize(slot));
 		}
 
 		// Display Descending Sort
 		System.out.println("\n\nDescending:");
-		Map<String, Long> hm2 = sortByValueDescending(hm);
-		for (Map.Entry<String, Long> en : hm2.entrySet()) {
-			System.out.println("Key = " + en.getKey() + ", Value = " + en.getValue());
+		for (int slot : sm.sort('s', false)) {
+			System.out.println("Key = " + sm.queryName(slot) + ", Value = " + sm.querySize(slot));
+		}
+
+		// Display the Top 3
+		System.out.println("\n\nTop 3:");
+		for (int slot : sm.top(3, 's', false)) {
+			System.out.println("Key = " + sm.queryName(slot) + ", Value = " + sm.querySize(slot));
 		}
 	}
 }
@@ -0,0 +1,486 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fross.library.Output;
+
+/**
+ * Snapshot saves the totals of every directory in the tree to a compact binary file, and reads one back
+ * through a memory map so even a snapshot of millions of directories is opened without loading it
+ * onto the heap.
+ *
+ * The file is a fixed header, then one fixed width record per directory, then a string table:
+ *
+ * <pre>
+ * Header:  magic, version, created (millis), directory count, string count, string table offset
+ * Record:  parent, first child, child count, name string, size, files, modified (millis), flags
+ * Strings: (string count + 1) offsets, then the UTF-8 bytes of each string
+ * </pre>
+ *
+ * Records are in breadth first order starting with the root, and the children of a directory are
+ * next to each other sorted by name, so a child can be found with a binary search. Each directory name
+ * is stored once in the string table no matter how many directories share it. Sizes and files are
+ * totals of the whole subtree, so the total of any directory is a single record read.
+ *
+ * A snapshot is also a binary export of the scan (--snapshot) that can be reported on later without
+ * scanning again (--read). Queries read the mapped records directly and only keep their results.
+ *
+ * @author michael.d.fross
+ */
+public class Snapshot {
+	private static final int SNAPSHOT_MAGIC = 0x44534E50;	// "DSNP"
+	private static final int SNAPSHOT_VERSION = 2;
+	private static final int HEADER_SIZE = 32;
+	private static final int RECORD_SIZE = 48;
+
+	// Field offsets within a record
+	private static final int REC_PARENT = 0;
+	private static final int REC_FIRST_CHILD = 4;
+	private static final int REC_CHILD_COUNT = 8;
+	private static final int REC_NAME = 12;
+	private static final int REC_SIZE = 16;
+	private static final int REC_FILES = 24;
+	private static final int REC_MODIFIED = 32;
+	private static final int REC_FLAGS = 40;	// Followed by 4 unused bytes so every record stays 8 byte aligned
+
+	// Record flags
+	private static final int FLAG_LINK = 1;
+
+	private final long created;
+	private final int count;
+	private final int stringCount;
+	private final MappedByteBuffer records;
+	private final MappedByteBuffer strings;
+
+	/**
+	 * Constructor: Map an existing snapshot file. Use open() to read one
+	 * 
+	 * @param created
+	 * @param count
+	 * @param stringCount
+	 * @param records
+	 * @param strings
+	 */
+	private Snapshot(long created, int count, int stringCount, MappedByteBuffer records, MappedByteBuffer strings) {
+		this.created = created;
+		this.count = count;
+		this.stringCount = stringCount;
+		this.records = records;
+		this.strings = strings;
+	}
+
+	/**
+	 * open(): Map a snapshot file and check its header. The records and the string table are mapped
+	 * separately, so each may be up to 2GB
+	 * 
+	 * @param snapshotFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static Snapshot open(Path snapshotFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("Not a DirSize snapshot: " + snapshotFile);
+			}
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt(0) != SNAPSHOT_MAGIC) {
+				throw new IOException("Not a DirSize snapshot: " + snapshotFile);
+			}
+			if (header.getInt(4) != SNAPSHOT_VERSION) {
+				throw new IOException("Snapshot was written by a different version of DirSize: " + snapshotFile);
+			}
+
+			long created = header.getLong(8);
+			int count = header.getInt(16);
+			int stringCount = header.getInt(20);
+			long stringOffset = header.getLong(24);
+
+			if (count < 1 || stringOffset != HEADER_SIZE + (long) count * RECORD_SIZE || stringOffset > channel.size()) {
+				throw new IOException("Snapshot is damaged: " + snapshotFile);
+			}
+			if (stringOffset - HEADER_SIZE > Integer.MAX_VALUE || channel.size() - stringOffset > Integer.MAX_VALUE) {
+				throw new IOException("Snapshot is too large to map: " + snapshotFile);
+			}
+
+			// The channel can be closed once mapped. The mappings stay valid
+			MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, stringOffset - HEADER_SIZE);
+			MappedByteBuffer strings = channel.map(FileChannel.MapMode.READ_ONLY, stringOffset, channel.size() - stringOffset);
+
+			Output.debugPrintln("Snapshot '" + snapshotFile + "' mapped with " + count + " directories and " + stringCount + " names");
+			return (new Snapshot(created, count, stringCount, records, strings));
+		}
+	}
+
+	/**
+	 * write(): Write the totals in a rolled up directory index to a snapshot file. It's written to a
+	 * temporary file first and moved into place, so a snapshot still mapped from the same file is never
+	 * changed underneath its reader
+	 * 
+	 * @param index
+	 * @param snapshotFile
+	 * @throws IOException
+	 */
+	public static void write(DirIndex index, Path snapshotFile) throws IOException {
+		int count = index.queryCount();
+
+		// Group the children of each slot together. childStart[slot] is where its children begin
+		int[] childStart = new int[count + 1];
+		for (int slot = 1; slot < count; slot++) {
+			childStart[index.queryParent(slot) + 1]++;
+		}
+		for (int slot = 0; slot < count; slot++) {
+			childStart[slot + 1] += childStart[slot];
+		}
+		int[] children = new int[Math.max(count - 1, 0)];
+		int[] fill = Arrays.copyOf(childStart, count);
+		for (int slot = 1; slot < count; slot++) {
+			children[fill[index.queryParent(slot)]++] = slot;
+		}
+
+		// Breadth first order with each directory's children sorted by name. order[] maps a record to its
+		// slot and record[] maps a slot to its record
+		int[] order = new int[count];
+		int[] record = new int[count];
+		int[] firstChild = new int[count];
+		int ordered = 1;
+		for (int r = 0; r < count; r++) {
+			int slot = order[r];
+			record[slot] = r;
+			firstChild[r] = ordered;
+
+			Integer[] sorted = new Integer[childStart[slot + 1] - childStart[slot]];
+			for (int i = 0; i < sorted.length; i++) {
+				sorted[i] = children[childStart[slot] + i];
+			}
+			Arrays.sort(sorted, (a, b) -> index.queryName(a).compareTo(index.queryName(b)));
+			for (Integer child : sorted) {
+				order[ordered++] = child;
+			}
+		}
+
+		// Each distinct name is stored once
+		Map<String, Integer> nameIds = new HashMap<String, Integer>();
+		List<byte[]> names = new ArrayList<byte[]>();
+		int[] nameId = new int[count];
+		for (int r = 0; r < count; r++) {
+			String name = index.queryName(order[r]);
+			Integer id = nameIds.get(name);
+			if (id == null) {
+				id = names.size();
+				nameIds.put(name, id);
+				names.add(name.getBytes(StandardCharsets.UTF_8));
+			}
+			nameId[r] = id;
+		}
+
+		Path parentDir = snapshotFile.toAbsolutePath().getParent();
+		Path tempFile = Files.createTempFile(parentDir, "dirsize", ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_VERSION);
+			out.writeLong(System.currentTimeMillis());
+			out.writeInt(count);
+			out.writeInt(names.size());
+			out.writeLong(HEADER_SIZE + (long) count * RECORD_SIZE);
+
+			for (int r = 0; r < count; r++) {
+				int slot = order[r];
+				out.writeInt(r == 0 ? -1 : record[index.queryParent(slot)]);
+				out.writeInt(firstChild[r]);
+				out.writeInt(childStart[slot + 1] - childStart[slot]);
+				out.writeInt(nameId[r]);
+				out.writeLong(index.querySize(slot));
+				out.writeLong(index.queryFiles(slot));
+				out.writeLong(index.queryModified(slot));
+				out.writeInt((index.queryLink(slot) == true) ? FLAG_LINK : 0);
+				out.writeInt(0);
+			}
+
+			int offset = 0;
+			for (byte[] name : names) {
+				out.writeInt(offset);
+				offset += name.length;
+			}
+			out.writeInt(offset);
+			for (byte[] name : names) {
+				out.write(name);
+			}
+
+		} catch (IOException ex) {
+			Files.deleteIfExists(tempFile);
+			throw ex;
+		}
+
+		Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		Output.debugPrintln("Snapshot saved with " + count + " directories and " + names.size() + " names");
+	}
+
+	/**
+	 * findChild(): Return the record of the child of a directory with the given name, or -1 if it has no
+	 * such child
+	 * 
+	 * @param rec
+	 * @param name
+	 * @return
+	 */
+	public int findChild(int rec, String name) {
+		int low = queryFirstChild(rec);
+		int high = low + queryChildCount(rec) - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = queryName(mid).compareTo(name);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return (mid);
+			}
+		}
+		return (-1);
+	}
+
+	/**
+	 * findPath(): Return the record of a directory given its path relative to the root, or -1 if it's
+	 * not in the snapshot. Either separator may be used
+	 * 
+	 * @param relativePath
+	 * @return
+	 */
+	public int findPath(String relativePath) {
+		int rec = 0;
+		for (String name : relativePath.split("[/\\\\]")) {
+			if (name.isEmpty() == true || name.equals(".") == true) {
+				continue;
+			}
+			rec = findChild(rec, name);
+			if (rec < 0) {
+				break;
+			}
+		}
+		return (rec);
+	}
+
+	/**
+	 * queryPath(): Return the path of a record relative to the root
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public String queryPath(int rec) {
+		if (rec == 0) {
+			return (queryName(0));
+		}
+
+		StringBuilder sb = new StringBuilder(queryName(rec));
+		for (int p = queryParent(rec); p > 0; p = queryParent(p)) {
+			sb.insert(0, File.separatorChar).insert(0, queryName(p));
+		}
+		return (sb.toString());
+	}
+
+	/**
+	 * queryWithin(): Returns true if a record is the base record or one of its descendants
+	 * 
+	 * @param rec
+	 * @param baseRec
+	 * @return
+	 */
+	public boolean queryWithin(int rec, int baseRec) {
+		if (baseRec == 0) {
+			return (true);
+		}
+
+		// Records are breadth first so a parent always comes before its children
+		for (int p = rec; p >= baseRec; p = queryParent(p)) {
+			if (p == baseRec) {
+				return (true);
+			}
+		}
+		return (false);
+	}
+
+	/**
+	 * top(): Return the records of the n largest directories below the base record, largest first. Only
+	 * the n records kept are held on the heap
+	 * 
+	 * @param n
+	 * @param byFiles
+	 * @param baseRec
+	 * @return
+	 */
+	public int[] top(int n, boolean byFiles, int baseRec) {
+		int[] top = DirIndex.top(rec -> (rec == baseRec || queryWithin(rec, baseRec) == false) ? Long.MIN_VALUE : queryValue(rec, byFiles), count, n);
+
+		// If fewer than n directories are below the base, directories outside of it fill the rest
+		int found = 0;
+		while (found < top.length && (top[found] != baseRec && queryWithin(top[found], baseRec) == true)) {
+			found++;
+		}
+		return (Arrays.copyOf(top, found));
+	}
+
+	/**
+	 * queryValue(): Return the size or the file count of a record
+	 * 
+	 * @param rec
+	 * @param byFiles
+	 * @return
+	 */
+	private long queryValue(int rec, boolean byFiles) {
+		return ((byFiles == true) ? queryFiles(rec) : querySize(rec));
+	}
+
+	/**
+	 * queryName(): Return the directory name of a record. The root record holds the full root path
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public String queryName(int rec) {
+		int id = records.getInt(rec * RECORD_SIZE + REC_NAME);
+		int textStart = (stringCount + 1) * 4;
+		int start = strings.getInt(id * 4);
+		int end = strings.getInt((id + 1) * 4);
+
+		byte[] bytes = new byte[end - start];
+		strings.get(textStart + start, bytes);
+		return (new String(bytes, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * queryParent(): Return the parent record of a record. The root's parent is -1
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public int queryParent(int rec) {
+		return (records.getInt(rec * RECORD_SIZE + REC_PARENT));
+	}
+
+	/**
+	 * queryFirstChild(): Return the record of the first child of a record
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public int queryFirstChild(int rec) {
+		return (records.getInt(rec * RECORD_SIZE + REC_FIRST_CHILD));
+	}
+
+	/**
+	 * queryChildCount(): Return the number of subdirectories of a record
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public int queryChildCount(int rec) {
+		return (records.getInt(rec * RECORD_SIZE + REC_CHILD_COUNT));
+	}
+
+	/**
+	 * querySize(): Return the size total of a record's subtree
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public long querySize(int rec) {
+		return (records.getLong(rec * RECORD_SIZE + REC_SIZE));
+	}
+
+	/**
+	 * queryFiles(): Return the files total of a record's subtree
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public long queryFiles(int rec) {
+		return (records.getLong(rec * RECORD_SIZE + REC_FILES));
+	}
+
+	/**
+	 * queryModified(): Return the modification time of a record's directory in milliseconds, or zero if
+	 * it wasn't known
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public long queryModified(int rec) {
+		return (records.getLong(rec * RECORD_SIZE + REC_MODIFIED));
+	}
+
+	/**
+	 * queryLink(): Return true if a record's directory was reached through a symbolic link when the
+	 * snapshot was saved
+	 * 
+	 * @param rec
+	 * @return
+	 */
+	public boolean queryLink(int rec) {
+		return ((records.getInt(rec * RECORD_SIZE + REC_FLAGS) & FLAG_LINK) != 0);
+	}
+
+	/**
+	 * queryCount(): Return the number of directories in the snapshot including the root
+	 * 
+	 * @return
+	 */
+	public int queryCount() {
+		return (count);
+	}
+
+	/**
+	 * queryCreated(): Return when the snapshot was written in milliseconds
+	 * 
+	 * @return
+	 */
+	public long queryCreated() {
+		return (created);
+	}
+
+}
@@ -0,0 +1,157 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.nio.file.Paths;
+
+/**
+ * SnapshotDiff compares the directory index of the current scan with a snapshot saved earlier (--diff)
+ * to show where the tree grew or shrank.
+ *
+ * Each directory in the index is matched to the snapshot record with the same path. A directory
+ * always comes after its parent in the index, so its parent is already matched and only the parent's
+ * children are searched. Nothing from the snapshot is copied onto the heap apart from one int per
+ * directory for the match.
+ *
+ * @author michael.d.fross
+ */
+public class SnapshotDiff {
+	private final DirIndex index;
+	private final Snapshot snapshot;
+	private final int[] match;
+
+	/**
+	 * Constructor: Match every directory in the rolled up index to its snapshot record, or -1 if it's new
+	 * 
+	 * @param index
+	 * @param snapshot
+	 */
+	public SnapshotDiff(DirIndex index, Snapshot snapshot) {
+		this.index = index;
+		this.snapshot = snapshot;
+		this.match = new int[index.queryCount()];
+
+		// The roots are always compared, even if the snapshot was taken from another path
+		match[0] = 0;
+		for (int slot = 1; slot < match.length; slot++) {
+			int parentRec = match[index.queryParent(slot)];
+			match[slot] = (parentRec < 0) ? -1 : snapshot.findChild(parentRec, index.queryName(slot));
+		}
+	}
+
+	/**
+	 * querySizeChange(): Return the change in size of a directory's subtree since the snapshot
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public long querySizeChange(int slot) {
+		return (index.querySize(slot) - ((match[slot] < 0) ? 0L : snapshot.querySize(match[slot])));
+	}
+
+	/**
+	 * queryFilesChange(): Return the change in the number of files in a directory's subtree since the
+	 * snapshot
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public long queryFilesChange(int slot) {
+		return (index.queryFiles(slot) - ((match[slot] < 0) ? 0L : snapshot.queryFiles(match[slot])));
+	}
+
+	/**
+	 * queryNew(): Returns true if the directory wasn't in the snapshot
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public boolean queryNew(int slot) {
+		return (match[slot] < 0);
+	}
+
+	/**
+	 * rootChanges(): Return the change of each root member directory in a SizeMap so it can be sorted and
+	 * displayed like the regular report. Directories only in the snapshot have been deleted and show a
+	 * negative change. The first slot is the change in the files directly in the root directory
+	 * 
+	 * @param rootName
+	 * @param rootDir
+	 * @return
+	 */
+	public SizeMap rootChanges(String rootName, String rootDir) {
+		SizeMap changes = new SizeMap();
+		changes.add(rootName, rootDir, 0L, 0L);
+
+		// What's left after the subdirectories are taken out of the root totals are the root files
+		long rootSize = querySizeChange(0);
+		long rootFiles = queryFilesChange(0);
+
+		boolean[] seen = new boolean[snapshot.queryChildCount(0)];
+		int firstChild = snapshot.queryFirstChild(0);
+
+		for (int slot = 1; slot < index.queryCount(); slot++) {
+			if (index.queryParent(slot) == 0) {
+				String name = index.queryName(slot) + ((match[slot] < 0) ? " [NEW]" : "");
+				changes.add(name, Paths.get(rootDir, index.queryName(slot)).toString(), querySizeChange(slot), queryFilesChange(slot));
+				rootSize -= querySizeChange(slot);
+				rootFiles -= queryFilesChange(slot);
+				if (match[slot] >= 0) {
+					seen[match[slot] - firstChild] = true;
+				}
+			}
+		}
+
+		for (int i = 0; i < seen.length; i++) {
+			if (seen[i] == false) {
+				int rec = firstChild + i;
+				changes.add(snapshot.queryName(rec) + " [DELETED]", Paths.get(rootDir, snapshot.queryName(rec)).toString(), -snapshot.querySize(rec),
+						-snapshot.queryFiles(rec));
+				rootSize += snapshot.querySize(rec);
+				rootFiles += snapshot.queryFiles(rec);
+			}
+		}
+
+		changes.addTotals(0, rootSize, rootFiles);
+		return (changes);
+	}
+
+	/**
+	 * topGrowth(): Return the slots of the n directories, at any depth, that grew the most
+	 * 
+	 * @param n
+	 * @param byFiles
+	 * @return
+	 */
+	public int[] topGrowth(int n, boolean byFiles) {
+		if (byFiles == true) {
+			return (DirIndex.top(this::queryFilesChange, match.length, n));
+		}
+		return (DirIndex.top(this::querySizeChange, match.length, n));
+	}
+
+}
@@ -0,0 +1,127 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throttle limits how hard a scan works the file system so it can run on storage shared with other
+ * applications. Two limits can be set, each one independent of the other:
+ *
+ * - Directory reads per second. A token bucket is refilled at the set rate and every directory read
+ * takes a token, waiting if none are left. The bucket holds a tenth of a second of reads so a pause
+ * in scanning doesn't turn into a burst afterwards.
+ *
+ * - Directory reads in flight. A semaphore caps how many directories are being read at the same
+ * time, whichever scanner is used.
+ *
+ * A read waits for its token before it takes a permit so a waiting thread never holds up others.
+ *
+ * @author michael.d.fross
+ */
+public class Throttle {
+	private final double readsPerNano;
+	private final double bucketSize;
+	private final Semaphore readPermits;
+	private final LongAdder waitNanos = new LongAdder();
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * Constructor: Set the maximum directory reads per second and the maximum reads in flight. Zero
+	 * leaves that limit off
+	 * 
+	 * @param readsPerSecond
+	 * @param maxReads
+	 */
+	public Throttle(int readsPerSecond, int maxReads) {
+		this.readsPerNano = readsPerSecond / 1e9;
+		this.bucketSize = Math.max(1.0, readsPerSecond / 10.0);
+		this.readPermits = (maxReads > 0) ? new Semaphore(maxReads, true) : null;
+		this.tokens = bucketSize;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * acquire(): Wait until a directory can be read. Every acquire() must be followed by a release()
+	 */
+	public void acquire() {
+		long startNanos = System.nanoTime();
+
+		if (readsPerNano > 0) {
+			long deadline = startNanos + reserve(startNanos);
+			for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+				LockSupport.parkNanos(remaining);
+			}
+		}
+
+		if (readPermits != null) {
+			readPermits.acquireUninterruptibly();
+		}
+
+		waitNanos.add(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * release(): Finish a directory read started with acquire()
+	 */
+	public void release() {
+		if (readPermits != null) {
+			readPermits.release();
+		}
+	}
+
+	/**
+	 * queryWaitNanos(): Return the total time the scanning threads waited on the throttle
+	 * 
+	 * @return
+	 */
+	public long queryWaitNanos() {
+		return (waitNanos.sum());
+	}
+
+	/**
+	 * reserve(): Take a token from the bucket and return how long to wait before it's valid. Tokens can
+	 * go negative so waiting reads are spaced out in the order they arrived
+	 * 
+	 * @param now
+	 * @return
+	 */
+	private synchronized long reserve(long now) {
+		tokens = Math.min(bucketSize, tokens + (now - lastRefill) * readsPerNano);
+		lastRefill = now;
+		tokens--;
+
+		if (tokens >= 0) {
+			return (0L);
+		}
+		return ((long) (-tokens / readsPerNano));
+	}
+
+}
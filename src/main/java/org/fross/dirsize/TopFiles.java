@@ -0,0 +1,176 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.nio.file.Path;
+
+/**
+ * TopFiles keeps the largest files seen during the scan in a bounded min-heap. The heap lives in two
+ * primitive arrays sized to the number of files requested, so memory depends only on that number and
+ * not on the size of the tree. The smallest file kept is at the top of the heap, so most files are
+ * rejected with a single compare and without taking the lock.
+ *
+ * @author michael.d.fross
+ */
+public class TopFiles {
+	private final long[] sizes;
+	private final String[] paths;
+	private int count = 0;
+	private volatile long threshold = Long.MIN_VALUE;
+	private boolean sorted = false;
+
+	/**
+	 * Constructor: Set the number of files to keep
+	 * 
+	 * @param capacity
+	 */
+	public TopFiles(int capacity) {
+		sizes = new long[capacity];
+		paths = new String[capacity];
+	}
+
+	/**
+	 * offer(): Keep the file if it's larger than the smallest one kept so far
+	 * 
+	 * @param file
+	 * @param size
+	 */
+	public void offer(Path file, long size) {
+		// Quick check without the lock. Most files are smaller than the smallest one kept
+		if (size <= threshold) {
+			return;
+		}
+
+		synchronized (this) {
+			if (count < sizes.length) {
+				// Still filling the heap. Add to the end and sift up
+				int i = count++;
+				sizes[i] = size;
+				paths[i] = file.toString();
+				while (i > 0 && sizes[(i - 1) / 2] > sizes[i]) {
+					swap((i - 1) / 2, i);
+					i = (i - 1) / 2;
+				}
+			} else if (size > sizes[0]) {
+				// Replace the smallest file kept and sift down
+				sizes[0] = size;
+				paths[0] = file.toString();
+				siftDown(0, count);
+			} else {
+				return;
+			}
+
+			if (count == sizes.length) {
+				threshold = sizes[0];
+			}
+		}
+	}
+
+	/**
+	 * siftDown(): Move the entry at i down the heap until both children are larger
+	 * 
+	 * @param i
+	 * @param heapSize
+	 */
+	private void siftDown(int i, int heapSize) {
+		while (true) {
+			int smallest = i;
+			int l = 2 * i + 1;
+			int r = l + 1;
+			if (l < heapSize && sizes[l] < sizes[smallest])
+				smallest = l;
+			if (r < heapSize && sizes[r] < sizes[smallest])
+				smallest = r;
+			if (smallest == i)
+				return;
+			swap(smallest, i);
+			i = smallest;
+		}
+	}
+
+	/**
+	 * swap(): Swap two entries in the heap
+	 * 
+	 * @param a
+	 * @param b
+	 */
+	private void swap(int a, int b) {
+		long s = sizes[a];
+		sizes[a] = sizes[b];
+		sizes[b] = s;
+		String p = paths[a];
+		paths[a] = paths[b];
+		paths[b] = p;
+	}
+
+	/**
+	 * sort(): Order the files largest first. Repeatedly moving the smallest to the end of the heap
+	 * leaves the arrays in descending order. No more files can be offered after this
+	 */
+	public synchronized void sort() {
+		if (sorted == true) {
+			return;
+		}
+
+		for (int end = count - 1; end > 0; end--) {
+			swap(0, end);
+			siftDown(0, end);
+		}
+		sorted = true;
+		threshold = Long.MAX_VALUE;
+	}
+
+	/**
+	 * queryCount(): Return the number of files kept
+	 * 
+	 * @return
+	 */
+	public synchronized int queryCount() {
+		return (count);
+	}
+
+	/**
+	 * querySize(): Return the size of the file at position i. Call sort() first
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public synchronized long querySize(int i) {
+		return (sizes[i]);
+	}
+
+	/**
+	 * queryPath(): Return the full path of the file at position i. Call sort() first
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public synchronized String queryPath(int i) {
+		return (paths[i]);
+	}
+
+}
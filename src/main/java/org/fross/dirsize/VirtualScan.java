@@ -0,0 +1,139 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.fross.library.Output;
+import org.fusesource.jansi.Ansi;
+
+/**
+ * VirtualScan scans each directory in its own virtual thread. On network file systems (NFS, SMB)
+ * reading a directory is mostly waiting on the server, so many reads in flight at once hides that
+ * latency far better than a small pool of platform threads.
+ *
+ * The number of directories being read at the same time is capped by a semaphore. The cap is only
+ * held while a directory is read, never while waiting on subdirectories, so it can't deadlock.
+ *
+ * @author michael.d.fross
+ */
+public class VirtualScan {
+	private final ScanDir scanner;
+	private final Semaphore readPermits;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * Constructor: Set the shared scanner and the maximum number of directories read at once
+	 * 
+	 * @param scanner
+	 * @param maxConcurrent
+	 */
+	public VirtualScan(ScanDir scanner, int maxConcurrent) {
+		this.scanner = scanner;
+		this.readPermits = new Semaphore(maxConcurrent);
+	}
+
+	/**
+	 * submit(): Start scanning a root member directory. The Future returns the same Long array ScanDir
+	 * does: Element [0] = Total Size, Element [1] = Total Files
+	 * 
+	 * @param dir
+	 * @param dirAttrs
+	 * @return
+	 */
+	public Future<long[]> submit(Path dir, BasicFileAttributes dirAttrs) {
+		int dirSlot = scanner.indexSubDir(0, dir, false);
+		return (executor.submit(() -> {
+			long startNanos = System.nanoTime();
+			long[] totals = scan(dir, dirAttrs, scanner.descendFromRoot(dirAttrs), dirSlot);
+			scanner.memberScanned(dir, startNanos);
+			return (totals);
+		}));
+	}
+
+	/**
+	 * shutdown(): Stop the executor once every scan is complete
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * scan(): Read a directory, start a virtual thread for each subdirectory and total the results
+	 * 
+	 * @param dir
+	 * @param dirAttrs
+	 * @param ancestors
+	 * @param dirSlot
+	 * @return
+	 */
+	private long[] scan(Path dir, BasicFileAttributes dirAttrs, ScanDir.Ancestor ancestors, int dirSlot) {
+		List<Path> subDirs = new ArrayList<Path>();
+		List<BasicFileAttributes> subDirAttrs = new ArrayList<BasicFileAttributes>();
+		BitSet subDirLinks = new BitSet();
+
+		// Accumulating totals. Element [0]=Total Size. Element [1]=Total Files.
+		long[] localTotals;
+		readPermits.acquireUninterruptibly();
+		try {
+			localTotals = scanner.scanContents(dir, dirAttrs, ancestors, dirSlot, subDirs, subDirAttrs, subDirLinks);
+		} finally {
+			readPermits.release();
+		}
+
+		// Start a virtual thread for each subdirectory
+		List<Future<long[]>> subScans = new ArrayList<Future<long[]>>(subDirs.size());
+		for (int i = 0; i < subDirs.size(); i++) {
+			Path subDir = subDirs.get(i);
+			BasicFileAttributes subAttrs = subDirAttrs.get(i);
+			ScanDir.Ancestor subAncestors = scanner.descend(ancestors, subAttrs);
+			int subSlot = scanner.indexSubDir(dirSlot, subDir, subDirLinks.get(i));
+			subScans.add(executor.submit(() -> scan(subDir, subAttrs, subAncestors, subSlot)));
+		}
+
+		// Wait for the subdirectories and add their totals to ours
+		for (int i = 0; i < subScans.size(); i++) {
+			try {
+				ScanDir.addTotals(localTotals, subScans.get(i).get());
+			} catch (InterruptedException | ExecutionException ex) {
+				Output.printColorln(Ansi.Color.RED, "ERROR Scanning " + subDirs.get(i).toString() + "\n" + ex.getMessage());
+			}
+		}
+
+		return (localTotals);
+	}
+
+}
@@ -0,0 +1,464 @@
+/******************************************************************************
+ * DirSize
+ * 
+ * DirSize is a simple command line based directory size reporting tool
+ * 
+ *  Copyright (c) 2011-2024 Michael Fross
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *           
+ ******************************************************************************/
+package org.fross.dirsize;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.DecimalFormat;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.fross.library.Format;
+import org.fross.library.Output;
+import org.fusesource.jansi.Ansi;
+
+/**
+ * Watcher keeps the directory report up to date while the tree changes (--watch). After one full
+ * scan, every directory is registered with a WatchService. A create, modify or delete event only marks
+ * its directory as changed. At each redraw the changed directories are read again (just that
+ * directory, not the tree below it) and the difference is added to every directory above it, so the
+ * root member totals are always current without walking the tree again.
+ *
+ * New subdirectories are scanned and registered as they're found, deleted ones are subtracted. If the
+ * WatchService drops events (OVERFLOW), the subtree of that directory is rescanned. A directory
+ * reached through symbolic links is registered once by the operating system, so a watch key can
+ * belong to more than one path.
+ *
+ * @author michael.d.fross
+ */
+public class Watcher {
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+	private final ScanDir scanner;
+	private final Path rootDir;
+	private final char sortBy;
+	private final boolean reverseSort;
+	private final int terminalWidth;
+	private final Map<WatchKey, List<WatchedDir>> watchedKeys = new HashMap<WatchKey, List<WatchedDir>>();
+	private final Map<Path, WatchedDir> watchedDirs = new HashMap<Path, WatchedDir>();
+	private final Set<WatchedDir> changedDirs = new HashSet<WatchedDir>();
+	private WatchService watchService = null;
+	private WatchedDir root = null;
+	private boolean watchLimitReached = false;
+	private long eventsReceived = 0;
+	private long dirsReread = 0;
+	private long subtreeRescans = 0;
+
+	/**
+	 * WatchedDir is a directory being watched. It keeps the totals of the files directly inside it and
+	 * the totals of its whole subtree
+	 */
+	static final class WatchedDir {
+		final Path path;
+		final WatchedDir parent;
+		final ScanDir.Ancestor ancestors;
+		final List<WatchedDir> children = new ArrayList<WatchedDir>();
+		final boolean link;
+		WatchKey key = null;
+		long localSize = 0;
+		long localFiles = 0;
+		long totalSize = 0;
+		long totalFiles = 0;
+
+		WatchedDir(Path path, WatchedDir parent, ScanDir.Ancestor ancestors) {
+			this.path = path;
+			this.parent = parent;
+			this.ancestors = ancestors;
+
+			// Only members of the root directory are marked as links in the report. It's checked once here
+			// instead of on every redraw
+			this.link = (parent != null && parent.parent == null) && Files.isSymbolicLink(path);
+		}
+	}
+
+	/**
+	 * Constructor: Set the scanner, the root directory and how the report is displayed
+	 * 
+	 * @param scanner
+	 * @param rootDir
+	 * @param sortBy
+	 * @param reverseSort
+	 * @param terminalWidth
+	 */
+	public Watcher(ScanDir scanner, Path rootDir, char sortBy, boolean reverseSort, int terminalWidth) {
+		this.scanner = scanner;
+		this.rootDir = rootDir;
+		this.sortBy = sortBy;
+		this.reverseSort = reverseSort;
+		this.terminalWidth = terminalWidth;
+	}
+
+	/**
+	 * watch(): Scan the tree, then apply changes and redraw the report every interval until interrupted
+	 * 
+	 * @param intervalSeconds
+	 */
+	public void watch(int intervalSeconds) {
+		long intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+
+		try {
+			watchService = rootDir.getFileSystem().newWatchService();
+			BasicFileAttributes rootAttrs = Files.readAttributes(rootDir, BasicFileAttributes.class);
+			root = scanTree(null, rootDir, rootAttrs, scanner.descend(null, rootAttrs));
+		} catch (IOException ex) {
+			Output.fatalError("Unable to watch '" + rootDir + "': " + ex.getMessage(), 1);
+		}
+
+		redraw(intervalSeconds);
+		long nextRedraw = System.nanoTime() + intervalNanos;
+
+		try {
+			while (Thread.currentThread().isInterrupted() == false) {
+				long waitNanos = nextRedraw - System.nanoTime();
+				if (waitNanos <= 0) {
+					applyChanges();
+					redraw(intervalSeconds);
+					nextRedraw = System.nanoTime() + intervalNanos;
+					continue;
+				}
+
+				WatchKey key = watchService.poll(waitNanos, TimeUnit.NANOSECONDS);
+				if (key != null) {
+					processEvents(key);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				watchService.close();
+			} catch (IOException ex) {
+				// Shutting down - ignore
+			}
+		}
+	}
+
+	/**
+	 * scanTree(): Register a directory and everything below it, and total it. Each directory is
+	 * registered before it's read so no change is missed in between. The tree is walked with a stack of
+	 * the directories waiting to be read instead of by recursion, so a deep tree can't overflow the
+	 * thread's stack.
+	 * 
+	 * Subdirectories are pushed in reverse so each directory's children stay in the order they were
+	 * listed. The caller adds the returned directory to its parent
+	 * 
+	 * @param parent
+	 * @param dir
+	 * @param dirAttrs
+	 * @param ancestors
+	 * @return
+	 */
+	private WatchedDir scanTree(WatchedDir parent, Path dir, BasicFileAttributes dirAttrs, ScanDir.Ancestor ancestors) {
+		WatchedDir top = new WatchedDir(dir, parent, ancestors);
+		List<WatchedDir> pendingDirs = new ArrayList<WatchedDir>();
+		List<BasicFileAttributes> pendingAttrs = new ArrayList<BasicFileAttributes>();
+		List<WatchedDir> scanned = new ArrayList<WatchedDir>();
+		List<Path> subDirs = new ArrayList<Path>();
+		List<BasicFileAttributes> subDirAttrs = new ArrayList<BasicFileAttributes>();
+
+		pendingDirs.add(top);
+		pendingAttrs.add(dirAttrs);
+		while (pendingDirs.isEmpty() == false) {
+			WatchedDir watched = pendingDirs.remove(pendingDirs.size() - 1);
+			BasicFileAttributes attrs = pendingAttrs.remove(pendingAttrs.size() - 1);
+			register(watched);
+
+			long[] localTotals = scanner.scanContents(watched.path, attrs, watched.ancestors, -1, subDirs, subDirAttrs, null);
+			watched.localSize = localTotals[0];
+			watched.localFiles = localTotals[1];
+			watched.totalSize = localTotals[0];
+			watched.totalFiles = localTotals[1];
+			if (watched != top) {
+				watched.parent.children.add(watched);
+			}
+			scanned.add(watched);
+
+			for (int i = subDirs.size() - 1; i >= 0; i--) {
+				pendingDirs.add(new WatchedDir(subDirs.get(i), watched, scanner.descend(watched.ancestors, subDirAttrs.get(i))));
+				pendingAttrs.add(subDirAttrs.get(i));
+			}
+			subDirs.clear();
+			subDirAttrs.clear();
+		}
+
+		// Every directory was read after its parent, so going backwards adds each subtree to its parent
+		// before the parent is added to the one above it
+		for (int i = scanned.size() - 1; i > 0; i--) {
+			WatchedDir watched = scanned.get(i);
+			watched.parent.totalSize += watched.totalSize;
+			watched.parent.totalFiles += watched.totalFiles;
+		}
+
+		return (top);
+	}
+
+	/**
+	 * register(): Add the directory to the WatchService. If the operating system's limit on watches is
+	 * reached, the directory is still totaled but changes to it won't be seen
+	 * 
+	 * @param watched
+	 */
+	private void register(WatchedDir watched) {
+		watchedDirs.put(watched.path, watched);
+		try {
+			watched.key = watched.path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			watchedKeys.computeIfAbsent(watched.key, k -> new ArrayList<WatchedDir>(1)).add(watched);
+		} catch (IOException ex) {
+			Main.scanErrors.add(watched.path, ex);
+			if (watchLimitReached == false) {
+				watchLimitReached = true;
+				Output.printColorln(Ansi.Color.YELLOW, "Unable to watch all directories: " + ex.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * removeTree(): Stop watching a directory and everything below it. Like scanTree() the tree is
+	 * walked with a stack instead of by recursion
+	 * 
+	 * @param top
+	 */
+	private void removeTree(WatchedDir top) {
+		List<WatchedDir> pendingDirs = new ArrayList<WatchedDir>();
+
+		pendingDirs.add(top);
+		while (pendingDirs.isEmpty() == false) {
+			WatchedDir watched = pendingDirs.remove(pendingDirs.size() - 1);
+			pendingDirs.addAll(watched.children);
+
+			// Only cancel the key once no other path to the directory uses it
+			if (watched.key != null) {
+				List<WatchedDir> sharing = watchedKeys.get(watched.key);
+				if (sharing != null) {
+					sharing.remove(watched);
+					if (sharing.isEmpty() == true) {
+						watchedKeys.remove(watched.key);
+						watched.key.cancel();
+					}
+				}
+			}
+			watchedDirs.remove(watched.path);
+			changedDirs.remove(watched);
+		}
+	}
+
+	/**
+	 * detach(): Remove a subdirectory and subtract its totals from every directory above it
+	 * 
+	 * @param watched
+	 */
+	private void detach(WatchedDir watched) {
+		removeTree(watched);
+		if (watched.parent != null) {
+			watched.parent.children.remove(watched);
+			addToParents(watched.parent, -watched.totalSize, -watched.totalFiles);
+		}
+	}
+
+	/**
+	 * addToParents(): Add a change in totals to a directory and every directory above it
+	 * 
+	 * @param watched
+	 * @param sizeDelta
+	 * @param filesDelta
+	 */
+	private static void addToParents(WatchedDir watched, long sizeDelta, long filesDelta) {
+		for (WatchedDir dir = watched; dir != null; dir = dir.parent) {
+			dir.totalSize += sizeDelta;
+			dir.totalFiles += filesDelta;
+		}
+	}
+
+	/**
+	 * processEvents(): Mark the directory of a watch key as changed. On an overflow, events were lost so
+	 * the whole subtree is rescanned. If the key is no longer valid the directory is gone
+	 * 
+	 * @param key
+	 */
+	private void processEvents(WatchKey key) {
+		List<WatchedDir> sharing = watchedKeys.get(key);
+
+		boolean overflow = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			eventsReceived++;
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				overflow = true;
+			}
+		}
+
+		if (sharing == null) {
+			key.cancel();
+			return;
+		}
+
+		if (key.reset() == false) {
+			// The directory was deleted or is no longer reachable. Its parent will see that
+			watchedKeys.remove(key);
+			for (WatchedDir watched : sharing) {
+				watched.key = null;
+				if (watched.parent != null) {
+					changedDirs.add(watched.parent);
+				}
+			}
+			return;
+		}
+
+		for (WatchedDir watched : new ArrayList<WatchedDir>(sharing)) {
+			if (overflow == true) {
+				Output.debugPrintln("Watch events lost.  Rescanning: '" + watched.path + "'");
+				subtreeRescans++;
+				for (WatchedDir child : new ArrayList<WatchedDir>(watched.children)) {
+					detach(child);
+				}
+			}
+			changedDirs.add(watched);
+		}
+	}
+
+	/**
+	 * applyChanges(): Read each changed directory again, add the difference to the directories above
+	 * it and bring its subdirectories up to date
+	 */
+	private void applyChanges() {
+		List<WatchedDir> changed = new ArrayList<WatchedDir>(changedDirs);
+		changedDirs.clear();
+
+		for (WatchedDir watched : changed) {
+			// Skip directories removed with a parent earlier in this pass
+			if (watchedDirs.get(watched.path) != watched) {
+				continue;
+			}
+
+			BasicFileAttributes dirAttrs;
+			try {
+				dirAttrs = Files.readAttributes(watched.path, BasicFileAttributes.class);
+			} catch (IOException ex) {
+				// Gone. Its parent has been marked as changed and will remove it
+				continue;
+			}
+
+			List<Path> subDirs = new ArrayList<Path>();
+			List<BasicFileAttributes> subDirAttrs = new ArrayList<BasicFileAttributes>();
+			long[] localTotals = scanner.scanContents(watched.path, dirAttrs, watched.ancestors, -1, subDirs, subDirAttrs, null);
+			dirsReread++;
+
+			addToParents(watched, localTotals[0] - watched.localSize, localTotals[1] - watched.localFiles);
+			watched.localSize = localTotals[0];
+			watched.localFiles = localTotals[1];
+
+			// Remove subdirectories that are gone. A link the policy only follows once isn't in the list
+			// the second time, so it's only removed if it no longer leads to a directory
+			Set<Path> found = new HashSet<Path>(subDirs);
+			for (WatchedDir child : new ArrayList<WatchedDir>(watched.children)) {
+				if (found.contains(child.path) == false && Files.isDirectory(child.path) == false) {
+					detach(child);
+				} else if (child.key == null && watchLimitReached == false) {
+					// Deleted and created again. Scan it as a new directory
+					detach(child);
+				}
+			}
+
+			// Scan and register new subdirectories
+			for (int i = 0; i < subDirs.size(); i++) {
+				if (watchedDirs.containsKey(subDirs.get(i)) == false) {
+					WatchedDir child = scanTree(watched, subDirs.get(i), subDirAttrs.get(i), scanner.descend(watched.ancestors, subDirAttrs.get(i)));
+					watched.children.add(child);
+					addToParents(watched, child.totalSize, child.totalFiles);
+				}
+			}
+		}
+	}
+
+	/**
+	 * redraw(): Clear the screen and display the report from the current totals
+	 * 
+	 * @param intervalSeconds
+	 */
+	private void redraw(int intervalSeconds) {
+		SizeMap results = new SizeMap();
+		int rootSlot = results.add(Main.ROOT_DIR_NAME, rootDir.toString(), root.localSize, root.localFiles);
+
+		// The totals match the regular report footer
+		long totalSize = 0;
+		long totalFiles = root.localFiles;
+		for (WatchedDir member : root.children) {
+			int slot = results.add(member.path.getFileName().toString(), member.path.toString(), member.totalSize, member.totalFiles);
+			results.setLink(slot, member.link);
+			totalSize += member.totalSize;
+			totalFiles += member.totalFiles;
+		}
+
+		int displayNameCol = (int) (terminalWidth * Main.DISPLAY_PERCENT_NAME * .01);
+		int displayFilesCol = (int) (terminalWidth * Main.DISPLAY_PERCENT_NUMFILES * .01);
+		int displaySizeCol = (int) (terminalWidth * Main.DISPLAY_PERCENT_DIRSIZE * .01);
+		int displayVisualMap = (int) (terminalWidth * Main.DISPLAY_PERCENT_VISUALMAP * .01) - 5;
+
+		long[] range = results.queryRange(sortBy == 'f', rootSlot);
+		long unitsPerSlot = (range[1] - range[0]) / displayVisualMap;
+
+		// Clear the screen if we can, otherwise just start a new report below the last one
+		if (Output.queryColorEnabled() == true) {
+			Output.print(Ansi.ansi().eraseScreen().cursor(1, 1).toString());
+		} else {
+			Output.println("");
+		}
+
+		Output.printColorln(Ansi.Color.CYAN, "Watching " + rootDir + "  [Redraw every " + intervalSeconds + "s.  Ctrl-C to stop]");
+		Output.printColorln(Ansi.Color.CYAN, "Updated: " + LocalTime.now().format(TIME_FORMAT) + "  Directories watched: " + watchedKeys.size() + "  Events: "
+				+ eventsReceived + "  Reread: " + dirsReread + "  Rescans: " + subtreeRescans + "  Errors: " + Main.scanErrors.queryTotal());
+
+		Main.displayHeader(sortBy, unitsPerSlot, terminalWidth, displayNameCol, displaySizeCol, displayFilesCol);
+
+		int colorCounter = 0;
+		Renderer renderer = new Renderer(sortBy, unitsPerSlot, displayNameCol, displaySizeCol, displayFilesCol, displayVisualMap);
+		for (int slot : results.sort(sortBy, reverseSort)) {
+			renderer.row(results.queryName(slot), results.querySize(slot), results.queryFiles(slot), results.queryLink(slot), colorCounter++);
+		}
+		renderer.flush();
+
+		Output.printColorln(Ansi.Color.CYAN, "-".repeat(terminalWidth));
+		Output.printColor(Ansi.Color.CYAN, String.format("Directories: %-" + (displayNameCol - 13) + "s", results.queryCount()));
+		Output.printColor(Ansi.Color.WHITE, String.format("%" + displaySizeCol + "s", Format.humanReadableBytes(totalSize)));
+		Output.printColorln(Ansi.Color.WHITE, String.format("%" + displayFilesCol + "s", new DecimalFormat("#,###").format((double) totalFiles)));
+	}
+
+}